@@ -3,6 +3,8 @@ package com.febin.auth.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 @Component
 @ConfigurationProperties(prefix = "jwt")
 public class JwtProperties {
@@ -25,6 +27,407 @@ public class JwtProperties {
      */
     private long refreshTokenValidityMs = 604_800_000;
 
+    /**
+     * Whether the JWT filter builds the principal from the token claims alone,
+     * skipping the per-request user lookup.
+     * Default: false (user is reloaded from the database on every request).
+     */
+    private boolean claimsOnlyAuth = false;
+
+    /**
+     * How refresh tokens are kept: "database" (one refresh_tokens row per token) or
+     * "stateless" (signed JWTs; only families and revocations are tracked, in memory).
+     * Default: database.
+     */
+    private String refreshMode = "database";
+
+    /**
+     * How long after a refresh other requests presenting the same refresh token receive the
+     * same new tokens instead of being treated as reuse (parallel tabs/XHRs).
+     * Default: 10 seconds.
+     */
+    private Duration refreshGracePeriod = Duration.ofSeconds(10);
+
+    /**
+     * Maximum number of active sessions (live refresh-token families) per user; logging in
+     * beyond it ends the oldest sessions. 0 means unlimited.
+     * Default: 10.
+     */
+    private int maxActiveSessions = 10;
+
+    /**
+     * Cache of already-verified access tokens used by the JWT filter.
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * Access-token signing algorithm and key ring settings.
+     */
+    private Signing signing = new Signing();
+
+    /**
+     * Denylist of access tokens revoked before their expiry (e.g. on logout).
+     */
+    private Denylist denylist = new Denylist();
+
+    /**
+     * Background deletion of expired and revoked refresh tokens.
+     */
+    private RefreshTokenPurge refreshTokenPurge = new RefreshTokenPurge();
+
+    /**
+     * Batch introspection endpoint for internal services (/api/internal/introspect).
+     */
+    private Introspection introspection = new Introspection();
+
+    /**
+     * Where database-mode refresh tokens are kept (see RefreshTokenStore).
+     */
+    private RefreshStore refreshStore = new RefreshStore();
+
+    public static class Cache {
+        /**
+         * Whether verified access tokens are cached until they expire.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of cached tokens.
+         * Default: 10000.
+         */
+        private int maxSize = 10_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public static class Signing {
+        /**
+         * Algorithm used to sign access tokens: HS256 (shared jwt.secret), ES256 or EdDSA (Ed25519).
+         * Default: HS256.
+         */
+        private String algorithm = "HS256";
+
+        /**
+         * How long an asymmetric key signs tokens before the next key takes over.
+         * Default: 1 day.
+         */
+        private Duration rotationPeriod = Duration.ofDays(1);
+
+        /**
+         * Cache-Control max-age of /.well-known/jwks.json.
+         * Default: 5 minutes.
+         */
+        private Duration jwksMaxAge = Duration.ofMinutes(5);
+
+        /**
+         * Optional fixed private key (base64 PKCS#8). When set, the key is shared by all
+         * instances and is not rotated; otherwise keys are generated in memory.
+         */
+        private String privateKey;
+
+        /**
+         * Public key (base64 X.509) matching privateKey.
+         */
+        private String publicKey;
+
+        /**
+         * Key id announced for the fixed key.
+         */
+        private String keyId;
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+        public void setAlgorithm(String algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        public Duration getRotationPeriod() {
+            return rotationPeriod;
+        }
+        public void setRotationPeriod(Duration rotationPeriod) {
+            this.rotationPeriod = rotationPeriod;
+        }
+
+        public Duration getJwksMaxAge() {
+            return jwksMaxAge;
+        }
+        public void setJwksMaxAge(Duration jwksMaxAge) {
+            this.jwksMaxAge = jwksMaxAge;
+        }
+
+        public String getPrivateKey() {
+            return privateKey;
+        }
+        public void setPrivateKey(String privateKey) {
+            this.privateKey = privateKey;
+        }
+
+        public String getPublicKey() {
+            return publicKey;
+        }
+        public void setPublicKey(String publicKey) {
+            this.publicKey = publicKey;
+        }
+
+        public String getKeyId() {
+            return keyId;
+        }
+        public void setKeyId(String keyId) {
+            this.keyId = keyId;
+        }
+    }
+
+    public static class Denylist {
+        /**
+         * Number of concurrently revoked tokens the Bloom filter is sized for.
+         * Default: 100000.
+         */
+        private int expectedEntries = 100_000;
+
+        /**
+         * Target false-positive rate of the Bloom filter.
+         * Default: 0.01.
+         */
+        private double falsePositiveRate = 0.01;
+
+        public int getExpectedEntries() {
+            return expectedEntries;
+        }
+        public void setExpectedEntries(int expectedEntries) {
+            this.expectedEntries = expectedEntries;
+        }
+
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+    }
+
+    public static class RefreshTokenPurge {
+        /**
+         * Whether the purge job runs on this instance.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Rows deleted per statement.
+         * Default: 1000.
+         */
+        private int batchSize = 1000;
+
+        /**
+         * Pause between two batches, bounding the delete rate.
+         * Default: 100ms.
+         */
+        private Duration pause = Duration.ofMillis(100);
+
+        /**
+         * Upper bound on batches per run, so one run never monopolizes the table.
+         * Default: 500.
+         */
+        private int maxBatchesPerRun = 500;
+
+        /**
+         * How long revoked tokens are kept before deletion. Tokens of a family that still has a live
+         * token are kept until they expire regardless, since they are needed to detect reuse.
+         * Default: 1 day.
+         */
+        private Duration revokedRetention = Duration.ofDays(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getPause() {
+            return pause;
+        }
+        public void setPause(Duration pause) {
+            this.pause = pause;
+        }
+
+        public int getMaxBatchesPerRun() {
+            return maxBatchesPerRun;
+        }
+        public void setMaxBatchesPerRun(int maxBatchesPerRun) {
+            this.maxBatchesPerRun = maxBatchesPerRun;
+        }
+
+        public Duration getRevokedRetention() {
+            return revokedRetention;
+        }
+        public void setRevokedRetention(Duration revokedRetention) {
+            this.revokedRetention = revokedRetention;
+        }
+    }
+
+    public static class Introspection {
+        /**
+         * Shared key callers must send in the X-Introspection-Key header.
+         * The endpoint is disabled while this is empty.
+         */
+        private String apiKey;
+
+        /**
+         * Maximum number of tokens accepted in one request.
+         * Default: 500.
+         */
+        private int maxBatchSize = 500;
+
+        public String getApiKey() {
+            return apiKey;
+        }
+        public void setApiKey(String apiKey) {
+            this.apiKey = apiKey;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+    }
+
+    public static class RefreshStore {
+        /**
+         * "jpa" (every write goes straight to refresh_tokens) or "tiered" (tokens are served from an
+         * in-memory tier and written to refresh_tokens in batches). The embedded tier is per instance,
+         * so "tiered" is for single-instance deployments until a shared tier is plugged in.
+         * Default: jpa.
+         */
+        private String type = "jpa";
+
+        /**
+         * When a tiered-store write counts as done:
+         * WRITE_THROUGH - after it is committed to MySQL (no write-behind);
+         * JOURNAL_FSYNC - after it is appended and fsync'ed to the local journal;
+         * JOURNAL - after it is appended to the journal (survives a process crash, not a power loss);
+         * ASYNC - immediately (a crash loses up to one flush interval of writes).
+         * Default: JOURNAL.
+         */
+        private Durability durability = Durability.JOURNAL;
+
+        /**
+         * Directory holding the write-behind journal, replayed into MySQL on startup.
+         */
+        private String journalDir = "./data/refresh-store-journal";
+
+        /**
+         * How often pending writes are flushed to MySQL.
+         * Default: 200ms.
+         */
+        private Duration flushInterval = Duration.ofMillis(200);
+
+        /**
+         * Writes per flush transaction.
+         * Default: 500.
+         */
+        private int flushBatchSize = 500;
+
+        /**
+         * Queued writes at which further writes wait for the background flush to catch up.
+         * Default: 10000.
+         */
+        private int maxPending = 10_000;
+
+        /**
+         * How long a write waits for room in a full queue before the request fails with 503.
+         * Default: 500ms.
+         */
+        private Duration maxPendingWait = Duration.ofMillis(500);
+
+        /**
+         * Tokens held by the in-memory tier; older ones are read back from MySQL on demand.
+         * Default: 100000.
+         */
+        private int cacheMaxSize = 100_000;
+
+        public enum Durability {
+            WRITE_THROUGH, JOURNAL_FSYNC, JOURNAL, ASYNC
+        }
+
+        public String getType() {
+            return type;
+        }
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public Durability getDurability() {
+            return durability;
+        }
+        public void setDurability(Durability durability) {
+            this.durability = durability;
+        }
+
+        public String getJournalDir() {
+            return journalDir;
+        }
+        public void setJournalDir(String journalDir) {
+            this.journalDir = journalDir;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public int getFlushBatchSize() {
+            return flushBatchSize;
+        }
+        public void setFlushBatchSize(int flushBatchSize) {
+            this.flushBatchSize = flushBatchSize;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+
+        public Duration getMaxPendingWait() {
+            return maxPendingWait;
+        }
+        public void setMaxPendingWait(Duration maxPendingWait) {
+            this.maxPendingWait = maxPendingWait;
+        }
+
+        public int getCacheMaxSize() {
+            return cacheMaxSize;
+        }
+        public void setCacheMaxSize(int cacheMaxSize) {
+            this.cacheMaxSize = cacheMaxSize;
+        }
+    }
+
     // Getters and setters
     public String getSecret() {
         return secret;
@@ -46,4 +449,78 @@ public class JwtProperties {
     public void setRefreshTokenValidityMs(long refreshTokenValidityMs) {
         this.refreshTokenValidityMs = refreshTokenValidityMs;
     }
-}
\ No newline at end of file
+
+    public boolean isClaimsOnlyAuth() {
+        return claimsOnlyAuth;
+    }
+    public void setClaimsOnlyAuth(boolean claimsOnlyAuth) {
+        this.claimsOnlyAuth = claimsOnlyAuth;
+    }
+
+    public String getRefreshMode() {
+        return refreshMode;
+    }
+    public void setRefreshMode(String refreshMode) {
+        this.refreshMode = refreshMode;
+    }
+
+    public Duration getRefreshGracePeriod() {
+        return refreshGracePeriod;
+    }
+    public void setRefreshGracePeriod(Duration refreshGracePeriod) {
+        this.refreshGracePeriod = refreshGracePeriod;
+    }
+
+    public int getMaxActiveSessions() {
+        return maxActiveSessions;
+    }
+    public void setMaxActiveSessions(int maxActiveSessions) {
+        this.maxActiveSessions = maxActiveSessions;
+    }
+
+    public boolean isStatelessRefresh() {
+        return "stateless".equalsIgnoreCase(refreshMode);
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    public Signing getSigning() {
+        return signing;
+    }
+    public void setSigning(Signing signing) {
+        this.signing = signing;
+    }
+
+    public Denylist getDenylist() {
+        return denylist;
+    }
+    public void setDenylist(Denylist denylist) {
+        this.denylist = denylist;
+    }
+
+    public RefreshTokenPurge getRefreshTokenPurge() {
+        return refreshTokenPurge;
+    }
+    public void setRefreshTokenPurge(RefreshTokenPurge refreshTokenPurge) {
+        this.refreshTokenPurge = refreshTokenPurge;
+    }
+
+    public Introspection getIntrospection() {
+        return introspection;
+    }
+    public void setIntrospection(Introspection introspection) {
+        this.introspection = introspection;
+    }
+
+    public RefreshStore getRefreshStore() {
+        return refreshStore;
+    }
+    public void setRefreshStore(RefreshStore refreshStore) {
+        this.refreshStore = refreshStore;
+    }
+}
@@ -3,6 +3,7 @@ package com.febin.auth.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,22 +18,35 @@ public class RateLimitProperties {
     private boolean enabled = true;
 
     /**
-     * Default rate limit configuration if endpoint not specified.
+     * Rate limit for paths that match no endpoint pattern (bound from {@code app.rate-limit.default.*});
+     * a capacity of 0 leaves them unlimited.
      */
     private EndpointConfig defaultConfig = new EndpointConfig();
 
     /**
-     * Per-endpoint overrides (keyed by endpoint path).
+     * Per-endpoint overrides, keyed by path pattern ({@code *} = one segment, {@code **} = any number).
+     * Keys contain '/', so they must be bracketed: {@code app.rate-limit.endpoints.[/api/auth/login].capacity}.
      */
     private Map<String, EndpointConfig> endpoints = new HashMap<>();
 
+    /**
+     * Path patterns that are never limited, such as service-to-service and key discovery endpoints.
+     * A more specific endpoint pattern below one of them still applies.
+     */
+    private List<String> exempt = new ArrayList<>(List.of("/api/internal/**", "/.well-known/**"));
+
     /**
      * For login endpoint: whether to also use per-account (username/email) keying.
      */
     private boolean usePerAccountForLogin = true;
 
     /**
-     * List of whitelisted IPs that bypass rate limiting.
+     * Login attempts allowed per account (normalized username or email), from any number of IPs.
+     */
+    private EndpointConfig perAccount = new EndpointConfig();
+
+    /**
+     * List of whitelisted IPs or CIDR blocks (e.g. 10.0.0.0/8) that bypass rate limiting.
      */
     private List<String> whitelistIps;
 
@@ -71,10 +85,10 @@ public class RateLimitProperties {
         this.enabled = enabled;
     }
 
-    public EndpointConfig getDefaultConfig() {
+    public EndpointConfig getDefault() {
         return defaultConfig;
     }
-    public void setDefaultConfig(EndpointConfig defaultConfig) {
+    public void setDefault(EndpointConfig defaultConfig) {
         this.defaultConfig = defaultConfig;
     }
 
@@ -85,6 +99,13 @@ public class RateLimitProperties {
         this.endpoints = endpoints;
     }
 
+    public List<String> getExempt() {
+        return exempt;
+    }
+    public void setExempt(List<String> exempt) {
+        this.exempt = exempt;
+    }
+
     public boolean isUsePerAccountForLogin() {
         return usePerAccountForLogin;
     }
@@ -92,6 +113,13 @@ public class RateLimitProperties {
         this.usePerAccountForLogin = usePerAccountForLogin;
     }
 
+    public EndpointConfig getPerAccount() {
+        return perAccount;
+    }
+    public void setPerAccount(EndpointConfig perAccount) {
+        this.perAccount = perAccount;
+    }
+
     public List<String> getWhitelistIps() {
         return whitelistIps;
     }
@@ -54,6 +54,8 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.ignoringRequestMatchers("/api/**"))
             .authorizeHttpRequests(authorize -> authorize
                 .requestMatchers("/api/auth/**").permitAll()
+                // Authenticated by the X-Introspection-Key header in IntrospectionController
+                .requestMatchers("/api/internal/introspect").permitAll()
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
@@ -77,7 +79,7 @@ public class SecurityConfig {
                 .ignoringRequestMatchers("/oauth2/**")
             )
             .authorizeHttpRequests(authorize -> authorize
-                .requestMatchers("/", "/error", "/oauth2/**", "/actuator/health").permitAll()
+                .requestMatchers("/", "/error", "/oauth2/**", "/actuator/health", "/.well-known/jwks.json").permitAll()
                 .anyRequest().authenticated()
             )
             .oauth2Login(oauth2 -> oauth2
@@ -1,11 +1,22 @@
 package com.febin.auth.controller;
 
+import com.febin.auth.config.RateLimitProperties;
 import com.febin.auth.dto.RoleResponse;
 import com.febin.auth.dto.UpdateUserRolesRequest;
 import com.febin.auth.dto.UserResponse;
 import com.febin.auth.entity.Role;
 import com.febin.auth.entity.User;
+import com.febin.auth.ratelimit.RateLimitFilter;
+import com.febin.auth.ratelimit.RateLimitRuleSync;
+import com.febin.auth.ratelimit.RateLimitRules;
+import com.febin.auth.security.AccessTokenValidator;
+import com.febin.auth.security.AuthenticatedUser;
+import com.febin.auth.security.NegativeLookupCache;
+import com.febin.auth.security.VerifiedTokenCache;
+import com.febin.auth.service.LeaseScheduler;
+import com.febin.auth.service.RefreshTokenPurgeService;
 import com.febin.auth.service.UserService;
+import com.febin.auth.store.RefreshTokenStore;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -20,9 +31,29 @@ import java.util.stream.Collectors;
 public class AdminController {
 
     private final UserService userService;
+    private final AccessTokenValidator accessTokenValidator;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final RefreshTokenPurgeService refreshTokenPurgeService;
+    private final NegativeLookupCache negativeLookupCache;
+    private final LeaseScheduler leaseScheduler;
+    private final RefreshTokenStore refreshTokenStore;
+    private final RateLimitFilter rateLimitFilter;
+    private final RateLimitRuleSync rateLimitRuleSync;
 
-    public AdminController(UserService userService) {
+    public AdminController(UserService userService, AccessTokenValidator accessTokenValidator,
+                           VerifiedTokenCache verifiedTokenCache, RefreshTokenPurgeService refreshTokenPurgeService,
+                           NegativeLookupCache negativeLookupCache, LeaseScheduler leaseScheduler,
+                           RefreshTokenStore refreshTokenStore, RateLimitFilter rateLimitFilter,
+                           RateLimitRuleSync rateLimitRuleSync) {
         this.userService = userService;
+        this.accessTokenValidator = accessTokenValidator;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.refreshTokenPurgeService = refreshTokenPurgeService;
+        this.negativeLookupCache = negativeLookupCache;
+        this.leaseScheduler = leaseScheduler;
+        this.refreshTokenStore = refreshTokenStore;
+        this.rateLimitFilter = rateLimitFilter;
+        this.rateLimitRuleSync = rateLimitRuleSync;
     }
 
     @GetMapping("/users")
@@ -51,15 +82,15 @@ public class AdminController {
 
     @PutMapping("/users/{id}/roles")
     public ResponseEntity<?> updateUserRoles(@PathVariable Long id, @Valid @RequestBody UpdateUserRolesRequest request, Authentication authentication) {
-        User adminUser = (User) authentication.getPrincipal();
-        userService.updateUserRoles(id, request.getRoles(), adminUser);
+        AuthenticatedUser adminUser = (AuthenticatedUser) authentication.getPrincipal();
+        userService.updateUserRoles(id, request.getRoles(), adminUser.id());
         return ResponseEntity.ok(Map.of("message", "User roles updated successfully."));
     }
 
     @PostMapping("/users/{id}/disable")
     public ResponseEntity<?> disableUser(@PathVariable Long id, Authentication authentication) {
-        User adminUser = (User) authentication.getPrincipal();
-        userService.disableUserAccount(id, adminUser);
+        AuthenticatedUser adminUser = (AuthenticatedUser) authentication.getPrincipal();
+        userService.disableUserAccount(id, adminUser.id());
         return ResponseEntity.ok(Map.of("message", "User account has been disabled successfully."));
     }
 
@@ -71,11 +102,83 @@ public class AdminController {
 
     @DeleteMapping("/users/{id}")
     public ResponseEntity<?> deleteUserById(@PathVariable Long id, Authentication authentication) {
-        User adminUser = (User) authentication.getPrincipal();
+        AuthenticatedUser adminUser = (AuthenticatedUser) authentication.getPrincipal();
         userService.deleteUserAccount(id, adminUser);
         return ResponseEntity.ok(Map.of("message", "User account has been successfully deleted."));
     }
 
+    @GetMapping("/metrics/tokens")
+    public ResponseEntity<?> getTokenMetrics() {
+        return ResponseEntity.ok(Map.of(
+                "validations", accessTokenValidator.getCounts(),
+                "cache", Map.of(
+                        "size", verifiedTokenCache.size(),
+                        "hits", verifiedTokenCache.getHitCount(),
+                        "misses", verifiedTokenCache.getMissCount(),
+                        "evictions", verifiedTokenCache.getEvictionCount())));
+    }
+
+    @GetMapping("/metrics/refresh-token-purge")
+    public ResponseEntity<?> getRefreshTokenPurgeMetrics() {
+        return ResponseEntity.ok(refreshTokenPurgeService.getStats());
+    }
+
+    @GetMapping("/metrics/negative-cache")
+    public ResponseEntity<?> getNegativeCacheMetrics() {
+        return ResponseEntity.ok(negativeLookupCache.getStats());
+    }
+
+    @GetMapping("/metrics/refresh-store")
+    public ResponseEntity<?> getRefreshStoreMetrics() {
+        return ResponseEntity.ok(refreshTokenStore.getStats());
+    }
+
+    @GetMapping("/metrics/rate-limit")
+    public ResponseEntity<?> getRateLimitMetrics() {
+        return ResponseEntity.ok(rateLimitFilter.getStats());
+    }
+
+    @GetMapping("/rate-limit/rules")
+    public ResponseEntity<?> getRateLimitRules() {
+        RateLimitRules rules = rateLimitFilter.getRules();
+        return ResponseEntity.ok(Map.of(
+                "version", rateLimitRuleSync.getAppliedVersion(),
+                "nodeId", leaseScheduler.getNodeId(),
+                "config", rules.getSource(),
+                "compiled", rules.describe()));
+    }
+
+    /**
+     * Replace the rate-limit rules on every instance (same shape as the "config" returned by GET).
+     * Applied here at once and by the other instances within app.rate-limit.rules-poll-interval-ms;
+     * kept across restarts until cleared with DELETE.
+     */
+    @PutMapping("/rate-limit/rules")
+    public ResponseEntity<?> updateRateLimitRules(@RequestBody RateLimitProperties properties, Authentication authentication) {
+        AuthenticatedUser adminUser = (AuthenticatedUser) authentication.getPrincipal();
+        try {
+            return ResponseEntity.ok(rateLimitRuleSync.publish(properties, adminUser.id()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Send every instance back to the rate-limit rules of the application properties.
+     */
+    @DeleteMapping("/rate-limit/rules")
+    public ResponseEntity<?> resetRateLimitRules(Authentication authentication) {
+        AuthenticatedUser adminUser = (AuthenticatedUser) authentication.getPrincipal();
+        return ResponseEntity.ok(rateLimitRuleSync.reset(adminUser.id()));
+    }
+
+    @GetMapping("/scheduler/leases")
+    public ResponseEntity<?> getSchedulerLeases() {
+        return ResponseEntity.ok(Map.of(
+                "nodeId", leaseScheduler.getNodeId(),
+                "leases", leaseScheduler.getLeases()));
+    }
+
     private UserResponse convertToUserResponse(User user) {
         UserResponse resp = new UserResponse();
         resp.setId(user.getId());
@@ -5,6 +5,7 @@ import com.febin.auth.dto.SignupRequest;
 import com.febin.auth.entity.AccountStatus;
 import com.febin.auth.entity.User;
 import com.febin.auth.service.AuthService;
+import com.febin.auth.service.RefreshCoalescer;
 import com.febin.auth.service.UserService;
 import com.febin.auth.util.CookieUtil;
 import jakarta.servlet.http.Cookie;
@@ -35,11 +36,14 @@ public class AuthController {
     private final UserService userService;
     private final AuthService authService;
     private final CookieUtil cookieUtil;
+    private final RefreshCoalescer refreshCoalescer;
 
-    public AuthController(UserService userService, AuthService authService, CookieUtil cookieUtil) {
+    public AuthController(UserService userService, AuthService authService, CookieUtil cookieUtil,
+                          RefreshCoalescer refreshCoalescer) {
         this.userService = userService;
         this.authService = authService;
         this.cookieUtil = cookieUtil;
+        this.refreshCoalescer = refreshCoalescer;
     }
 
     @PostMapping("/signup")
@@ -84,7 +88,7 @@ public class AuthController {
         String refreshTokenValue = cookieUtil.getCookie(request, CookieUtil.REFRESH_TOKEN_COOKIE)
                 .map(Cookie::getValue)
                 .orElseThrow(() -> new RuntimeException("Refresh token not found"));
-        authService.refresh(refreshTokenValue, response);
+        refreshCoalescer.refresh(refreshTokenValue, response);
         return ResponseEntity.ok(Map.of("message", "Tokens refreshed"));
     }
 
@@ -93,13 +97,11 @@ public class AuthController {
         String refreshTokenValue = cookieUtil.getCookie(request, CookieUtil.REFRESH_TOKEN_COOKIE)
                 .map(Cookie::getValue)
                 .orElse(null);
+        String accessTokenValue = cookieUtil.getCookie(request, CookieUtil.ACCESS_TOKEN_COOKIE)
+                .map(Cookie::getValue)
+                .orElse(null);
 
-        if (refreshTokenValue != null) {
-            authService.logout(refreshTokenValue, response);
-        } else {
-            cookieUtil.deleteCookie(response, CookieUtil.ACCESS_TOKEN_COOKIE, "Lax");
-            cookieUtil.deleteCookie(response, CookieUtil.REFRESH_TOKEN_COOKIE, "Lax");
-        }
+        authService.logout(refreshTokenValue, accessTokenValue, response);
 
         return ResponseEntity.ok(Map.of("message", "Logged out"));
     }
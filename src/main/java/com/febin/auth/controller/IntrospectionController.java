@@ -0,0 +1,101 @@
+package com.febin.auth.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.febin.auth.config.JwtProperties;
+import com.febin.auth.dto.IntrospectionRequest;
+import com.febin.auth.security.AccessTokenValidator;
+import com.febin.auth.security.TokenValidationResult;
+import com.febin.auth.util.AccessTokenClaims;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch token introspection for the API gateway and backend services.
+ * <p>
+ * Callers authenticate with the shared {@code X-Introspection-Key} instead of a user session.
+ * Each token goes through {@link AccessTokenValidator} (cache, denylist, token version; no
+ * database access), and the results are streamed in request order as
+ * {@code {"results":[{"active":true,"sub":...,"uid":...,"roles":[...],"exp":...}, ...]}}.
+ * Inactive tokens carry only {@code active:false} and a {@code reason}.
+ */
+@RestController
+@RequestMapping("/api/internal")
+public class IntrospectionController {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final AccessTokenValidator accessTokenValidator;
+    private final byte[] apiKey;
+    private final int maxBatchSize;
+
+    public IntrospectionController(AccessTokenValidator accessTokenValidator, JwtProperties jwtProperties) {
+        this.accessTokenValidator = accessTokenValidator;
+        String key = jwtProperties.getIntrospection().getApiKey();
+        this.apiKey = key == null || key.isBlank() ? null : key.getBytes(StandardCharsets.UTF_8);
+        this.maxBatchSize = jwtProperties.getIntrospection().getMaxBatchSize();
+    }
+
+    @PostMapping("/introspect")
+    public ResponseEntity<?> introspect(@RequestHeader(value = "X-Introspection-Key", required = false) String key,
+                                        @Valid @RequestBody IntrospectionRequest request) {
+        if (apiKey == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Introspection is not enabled"));
+        }
+        if (key == null || !MessageDigest.isEqual(apiKey, key.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid introspection key"));
+        }
+        List<String> tokens = request.getTokens();
+        if (tokens.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + maxBatchSize + " tokens per request"));
+        }
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("results");
+                for (String token : tokens) {
+                    writeResult(json, token);
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private void writeResult(JsonGenerator json, String token) throws IOException {
+        TokenValidationResult result = accessTokenValidator.validate(token);
+        json.writeStartObject();
+        json.writeBooleanField("active", result.isValid());
+        if (result.isValid()) {
+            AccessTokenClaims claims = result.claims();
+            json.writeStringField("sub", claims.subject());
+            if (claims.id() != null) json.writeNumberField("uid", claims.id());
+            json.writeArrayFieldStart("roles");
+            if (claims.roles() != null) {
+                for (String role : claims.roles()) json.writeString(role);
+            }
+            json.writeEndArray();
+            json.writeNumberField("exp", claims.expiresAt());
+        } else {
+            json.writeStringField("reason", result.status().name().toLowerCase());
+        }
+        json.writeEndObject();
+    }
+}
@@ -0,0 +1,44 @@
+package com.febin.auth.controller;
+
+import com.febin.auth.config.JwtProperties;
+import com.febin.auth.util.SigningKey;
+import com.febin.auth.util.SigningKeyRing;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes the public keys of the signing key ring so resource servers can verify
+ * access tokens locally. Empty when tokens are signed with the shared HS256 secret.
+ */
+@RestController
+public class JwksController {
+
+    private final SigningKeyRing signingKeyRing;
+    private final long maxAgeSeconds;
+
+    public JwksController(SigningKeyRing signingKeyRing, JwtProperties jwtProperties) {
+        this.signingKeyRing = signingKeyRing;
+        this.maxAgeSeconds = jwtProperties.getSigning().getJwksMaxAge().toSeconds();
+    }
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks(WebRequest request) {
+        List<SigningKey> keys = signingKeyRing.publishedKeys();
+        String etag = "\"" + keys.stream().map(SigningKey::kid).collect(Collectors.joining(".")) + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic())
+                .eTag(etag)
+                .body(Map.of("keys", keys.stream().map(SigningKey::toJwk).toList()));
+    }
+}
@@ -3,11 +3,12 @@ package com.febin.auth.controller;
 import com.febin.auth.dto.LinkOAuthAccountRequest;
 import com.febin.auth.dto.LinkedAccountResponse;
 import com.febin.auth.dto.PasswordResetRequest;
+import com.febin.auth.dto.SessionResponse;
 import com.febin.auth.dto.UnlinkOAuthAccountRequest;
 import com.febin.auth.dto.UserResponse;
-import com.febin.auth.entity.Role;
-import com.febin.auth.entity.User;
 import com.febin.auth.entity.UserProvider;
+import com.febin.auth.security.AuthenticatedUser;
+import com.febin.auth.service.SessionService;
 import com.febin.auth.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
@@ -17,6 +18,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.HashSet;
 import java.util.stream.Collectors;
 
 @RestController
@@ -24,43 +26,47 @@ import java.util.stream.Collectors;
 public class UserController {
 
     private final UserService userService;
+    private final SessionService sessionService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, SessionService sessionService) {
         this.userService = userService;
+        this.sessionService = sessionService;
     }
 
     @GetMapping("/me")
     public ResponseEntity<?> getCurrentUser(Authentication authentication) {
-        if (authentication == null || !authentication.isAuthenticated() || !(authentication.getPrincipal() instanceof User)) {
+        if (authentication == null || !authentication.isAuthenticated() || !(authentication.getPrincipal() instanceof AuthenticatedUser)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No user is currently logged in or session is invalid."));
         }
 
-        User currentUser = (User) authentication.getPrincipal();
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
 
         UserResponse resp = new UserResponse();
-        resp.setId(currentUser.getId());
-        resp.setUsername(currentUser.getUsername());
-        resp.setEmail(currentUser.getEmail());
-        resp.setRoles(currentUser.getRoles().stream().map(Role::getName).collect(Collectors.toSet()));
+        resp.setId(currentUser.id());
+        resp.setUsername(currentUser.username());
+        // compact access tokens do not carry the email
+        resp.setEmail(currentUser.email() != null ? currentUser.email()
+                : userService.findUserById(currentUser.id()).getEmail());
+        resp.setRoles(new HashSet<>(currentUser.roles()));
 
         return ResponseEntity.ok(resp);
     }
 
     @DeleteMapping("/me")
     public ResponseEntity<?> deleteSelf(Authentication authentication) {
-        User currentUser = (User) authentication.getPrincipal();
-        userService.deleteUserAccount(currentUser.getId(), currentUser);
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        userService.deleteUserAccount(currentUser.id(), currentUser);
         return ResponseEntity.ok(Map.of("message", "Your account has been successfully deleted."));
     }
 
     @GetMapping("/me/linked-accounts")
     public ResponseEntity<?> getLinkedAccounts(Authentication authentication) {
-        if (authentication == null || !authentication.isAuthenticated() || !(authentication.getPrincipal() instanceof User)) {
+        if (authentication == null || !authentication.isAuthenticated() || !(authentication.getPrincipal() instanceof AuthenticatedUser)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No user is currently logged in or session is invalid."));
         }
 
-        User currentUser = (User) authentication.getPrincipal();
-        List<UserProvider> userProviders = userService.getUserProviders(currentUser);
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        List<UserProvider> userProviders = userService.getUserProviders(currentUser.id());
         List<LinkedAccountResponse> linkedAccounts = userProviders.stream()
                 .map(provider -> new LinkedAccountResponse(provider.getProvider().name()))
                 .collect(Collectors.toList());
@@ -70,22 +76,39 @@ public class UserController {
 
     @PostMapping("/me/password")
     public ResponseEntity<?> resetPassword(Authentication authentication, @Valid @RequestBody PasswordResetRequest passwordResetRequest) {
-        User currentUser = (User) authentication.getPrincipal();
-        userService.resetPassword(currentUser, passwordResetRequest.getCurrentPassword(), passwordResetRequest.getNewPassword());
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        userService.resetPassword(currentUser.id(), passwordResetRequest.getCurrentPassword(), passwordResetRequest.getNewPassword());
         return ResponseEntity.ok(Map.of("message", "Password has been reset successfully"));
     }
 
     @PostMapping("/me/link-oauth")
     public ResponseEntity<?> linkOAuthAccount(Authentication authentication, @Valid @RequestBody LinkOAuthAccountRequest linkRequest) {
-        User currentUser = (User) authentication.getPrincipal();
-        userService.linkOAuthAccount(currentUser, linkRequest.getProvider(), linkRequest.getCode());
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        userService.linkOAuthAccount(currentUser.id(), linkRequest.getProvider(), linkRequest.getCode());
         return ResponseEntity.ok(Map.of("message", "Account successfully linked to " + linkRequest.getProvider()));
     }
 
     @PostMapping("/me/unlink-oauth")
     public ResponseEntity<?> unlinkOAuthAccount(Authentication authentication, @Valid @RequestBody UnlinkOAuthAccountRequest unlinkRequest) {
-        User currentUser = (User) authentication.getPrincipal();
-        userService.unlinkOAuthAccount(currentUser, unlinkRequest.getProvider());
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        userService.unlinkOAuthAccount(currentUser.id(), unlinkRequest.getProvider());
         return ResponseEntity.ok(Map.of("message", "Account successfully unlinked from " + unlinkRequest.getProvider()));
     }
+
+    @GetMapping("/me/sessions")
+    public ResponseEntity<List<SessionResponse>> getSessions(Authentication authentication,
+                                                             @RequestParam(required = false) Long before,
+                                                             @RequestParam(defaultValue = "20") int limit) {
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        return ResponseEntity.ok(sessionService.listActiveSessions(currentUser.id(), before, limit));
+    }
+
+    @DeleteMapping("/me/sessions/{sessionId}")
+    public ResponseEntity<?> revokeSession(Authentication authentication, @PathVariable String sessionId) {
+        AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+        if (!sessionService.revokeSession(currentUser.id(), sessionId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Session not found"));
+        }
+        return ResponseEntity.ok(Map.of("message", "Session has been revoked"));
+    }
 }
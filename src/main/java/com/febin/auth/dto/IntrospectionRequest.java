@@ -0,0 +1,15 @@
+package com.febin.auth.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Setter
+@Getter
+public class IntrospectionRequest {
+
+    @NotEmpty(message = "Tokens cannot be empty")
+    private List<String> tokens;
+}
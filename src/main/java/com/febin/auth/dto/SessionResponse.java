@@ -0,0 +1,27 @@
+package com.febin.auth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Setter
+@Getter
+@AllArgsConstructor
+public class SessionResponse {
+
+    /**
+     * Cursor for the next page (pass as {@code before}); changes whenever the session refreshes.
+     */
+    private Long id;
+
+    /**
+     * Stable id of the session (its refresh-token family), used to revoke it.
+     */
+    private String sessionId;
+
+    private Instant lastRefreshedAt;
+
+    private Instant expiresAt;
+}
@@ -0,0 +1,28 @@
+package com.febin.auth.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Token cutoff of a deleted user, kept until the user's last access token has expired;
+ * see TokenVersionRegistry.
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "deleted_users")
+public class DeletedUser {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Instant deletedAt;
+}
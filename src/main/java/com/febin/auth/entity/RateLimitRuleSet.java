@@ -0,0 +1,34 @@
+package com.febin.auth.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * One published version of the rate-limit rules; see RateLimitRuleSync. Rows are only inserted,
+ * and the highest id is the active version.
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "rate_limit_rules")
+public class RateLimitRuleSet {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * RateLimitProperties as JSON, or null to go back to the application properties.
+     */
+    @Column(columnDefinition = "TEXT")
+    private String config;
+
+    @Column(name = "created_by")
+    private Long createdBy;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt = Instant.now();
+}
@@ -14,11 +14,22 @@ public class RefreshToken {
 
     // getters/setters
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "refresh_token_id")
+    @TableGenerator(name = "refresh_token_id", table = "id_sequences", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "refresh_tokens", allocationSize = 50)
     private Long id;
 
-    @Column(nullable = false, unique = true, length = 255)
-    private String token;
+    /**
+     * SHA-256 of the token handed to the client; the token itself is never stored.
+     */
+    @Column(name = "token_hash", nullable = false, unique = true, columnDefinition = "BINARY(32)")
+    private byte[] tokenHash;
+
+    /**
+     * Shared by every token rotated from the same login (16 random bytes).
+     */
+    @Column(name = "family_id", nullable = false, columnDefinition = "BINARY(16)")
+    private byte[] familyId;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
@@ -0,0 +1,37 @@
+package com.febin.auth.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Lease granting one node the right to run a background job; see LeaseScheduler.
+ * Rows are only changed through the conditional updates of SchedulerLeaseRepository.
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "scheduler_leases")
+public class SchedulerLease {
+
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    @Column(length = 128)
+    private String owner;
+
+    @Column(name = "lease_until", nullable = false)
+    private Instant leaseUntil;
+
+    @Column(name = "acquired_at")
+    private Instant acquiredAt;
+
+    @Column(name = "heartbeat_at")
+    private Instant heartbeatAt;
+
+    @Column(name = "fencing_token", nullable = false)
+    private long fencingToken;
+}
@@ -22,7 +22,9 @@ import java.util.stream.Collectors;
         })
 public class User implements UserDetails {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_id")
+    @TableGenerator(name = "user_id", table = "id_sequences", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "users", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -47,6 +49,15 @@ public class User implements UserDetails {
     @Column(name = "account_status", nullable = false)
     private AccountStatus accountStatus = AccountStatus.UNVERIFIED;
 
+    /**
+     * Access tokens carrying an older version are rejected (see TokenRevocationService).
+     */
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion = 0;
+
+    @Column(name = "tokens_revoked_at")
+    private Instant tokensRevokedAt;
+
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
@@ -16,7 +16,9 @@ public class UserProvider {
 
     // getters/setters
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_provider_id")
+    @TableGenerator(name = "user_provider_id", table = "id_sequences", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "user_providers", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,12 @@
+package com.febin.auth.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class StoreUnavailableException extends RuntimeException {
+
+    public StoreUnavailableException(String message) {
+        super(message);
+    }
+}
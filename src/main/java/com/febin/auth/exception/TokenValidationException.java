@@ -0,0 +1,30 @@
+package com.febin.auth.exception;
+
+/**
+ * Thrown when an access token cannot be accepted. The {@link Reason} tells callers
+ * (and metrics) why, without having to inspect library-specific exception types.
+ */
+public class TokenValidationException extends RuntimeException {
+
+    public enum Reason {
+        MALFORMED,
+        BAD_SIGNATURE,
+        EXPIRED
+    }
+
+    private final Reason reason;
+
+    public TokenValidationException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public TokenValidationException(Reason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
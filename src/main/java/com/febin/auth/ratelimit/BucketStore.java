@@ -0,0 +1,228 @@
+package com.febin.auth.ratelimit;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Size-capped store of {@link TokenBucket} states, keyed by client address and endpoint id.
+ * <p>
+ * Buckets live in open-addressing tables of primitive arrays (128-bit address, endpoint id and the
+ * bucket's TAT: 28 bytes per slot), split into segments each guarded by a {@link StampedLock}.
+ * Requests for a known bucket only take the shared lock and update the TAT with a CAS; inserting
+ * takes the segment's write lock.
+ * <p>
+ * A bucket whose TAT is in the past is full again, i.e. indistinguishable from a new one, so it can
+ * be dropped without changing any decision. Such buckets are swept periodically and whenever a
+ * segment fills up; if a segment is still full after that (every bucket is actively limited), an
+ * arbitrary quarter of it is dropped. Memory therefore stays flat however many addresses are seen.
+ */
+public class BucketStore {
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder forcedEvictions = new LongAdder();
+
+    public BucketStore(int maxBuckets) {
+        // keep each table at most 3/4 full
+        int slots = Integer.highestOneBit(Math.max(16, maxBuckets / SEGMENTS * 4 / 3 - 1) * 2);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(slots);
+        }
+    }
+
+    /**
+     * Take one token from the bucket of {@code client} on endpoint {@code endpointId} (>= 1).
+     *
+     * @return the tokens left (>= 0), or minus the nanoseconds until a token is available
+     */
+    public long tryConsume(ClientAddress client, int endpointId, TokenBucket.Limit limit) {
+        return tryConsume(client, endpointId, limit, TokenBucket.now());
+    }
+
+    long tryConsume(ClientAddress client, int endpointId, TokenBucket.Limit limit, long now) {
+        long hash = mix(client.hi(), client.lo(), endpointId);
+        Segment segment = segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+        return segment.tryConsume(client.hi(), client.lo(), endpointId, (int) hash, limit, now);
+    }
+
+    /**
+     * Drop every bucket that has refilled completely.
+     */
+    public void evictIdle() {
+        evictIdle(TokenBucket.now());
+    }
+
+    void evictIdle(long now) {
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                if (!segment.hasIdle(now)) continue;
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+            stamp = segment.lock.writeLock();
+            try {
+                segment.rebuild(now);
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long size = 0;
+        long capacity = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                size += segment.size;
+                capacity += segment.maxSize;
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("buckets", size);
+        stats.put("capacity", capacity);
+        stats.put("bytesPerBucket", Segment.BYTES_PER_SLOT);
+        stats.put("idleEvictions", evictions.sum());
+        stats.put("forcedEvictions", forcedEvictions.sum());
+        return stats;
+    }
+
+    private static long mix(long hi, long lo, int endpointId) {
+        long h = hi * 0x9E3779B97F4A7C15L ^ lo;
+        h = (h ^ endpointId) * 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        h *= 0x94D049BB133111EBL;
+        return h ^ (h >>> 29);
+    }
+
+    // ------------ Helper classes ------------
+
+    private final class Segment {
+        static final int BYTES_PER_SLOT = 8 + 8 + 8 + 4;
+
+        final StampedLock lock = new StampedLock();
+        final int mask;
+        final int maxSize;
+        long[] hi;
+        long[] lo;
+        long[] tat;
+        // 0 marks a free slot
+        int[] endpoint;
+        int size;
+
+        Segment(int slots) {
+            this.mask = slots - 1;
+            this.maxSize = slots / 4 * 3;
+            allocate(slots);
+        }
+
+        long tryConsume(long keyHi, long keyLo, int endpointId, int hash, TokenBucket.Limit limit, long now) {
+            long stamp = lock.readLock();
+            try {
+                int slot = find(keyHi, keyLo, endpointId, hash);
+                if (slot >= 0) return consume(slot, limit, now);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+
+            stamp = lock.writeLock();
+            try {
+                int slot = find(keyHi, keyLo, endpointId, hash);
+                if (slot < 0) {
+                    if (size >= maxSize) makeRoom(now);
+                    slot = insert(keyHi, keyLo, endpointId, hash, 0);
+                }
+                return consume(slot, limit, now);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private long consume(int slot, TokenBucket.Limit limit, long now) {
+            while (true) {
+                long current = (long) LONGS.getVolatile(tat, slot);
+                long ahead = limit.aheadAfterConsume(current, now);
+                if (ahead > limit.toleranceNanos()) return -(ahead - limit.toleranceNanos());
+                if (LONGS.compareAndSet(tat, slot, current, now + ahead)) return limit.remaining(ahead);
+            }
+        }
+
+        private int find(long keyHi, long keyLo, int endpointId, int hash) {
+            for (int i = hash & mask; endpoint[i] != 0; i = (i + 1) & mask) {
+                if (endpoint[i] == endpointId && hi[i] == keyHi && lo[i] == keyLo) return i;
+            }
+            return -1;
+        }
+
+        private int insert(long keyHi, long keyLo, int endpointId, int hash, long bucketTat) {
+            int i = hash & mask;
+            while (endpoint[i] != 0) i = (i + 1) & mask;
+            hi[i] = keyHi;
+            lo[i] = keyLo;
+            endpoint[i] = endpointId;
+            tat[i] = bucketTat;
+            size++;
+            return i;
+        }
+
+        private void makeRoom(long now) {
+            rebuild(now);
+            if (size < maxSize) return;
+            // every bucket is still limiting someone: drop an arbitrary quarter
+            int toEvict = Math.max(1, size / 4);
+            for (int i = 0; i <= mask && toEvict > 0; i++) {
+                if (endpoint[i] != 0) {
+                    endpoint[i] = 0;
+                    size--;
+                    toEvict--;
+                    forcedEvictions.increment();
+                }
+            }
+            rebuild(now);
+        }
+
+        private boolean hasIdle(long now) {
+            for (int i = 0; i <= mask; i++) {
+                if (endpoint[i] != 0 && (long) LONGS.getVolatile(tat, i) <= now) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Re-insert the buckets that are not full (which also compacts probe chains).
+         */
+        private void rebuild(long now) {
+            long[] oldHi = hi;
+            long[] oldLo = lo;
+            long[] oldTat = tat;
+            int[] oldEndpoint = endpoint;
+            int before = size;
+            allocate(mask + 1);
+            for (int i = 0; i < oldEndpoint.length; i++) {
+                if (oldEndpoint[i] == 0 || oldTat[i] <= now) continue;
+                insert(oldHi[i], oldLo[i], oldEndpoint[i], (int) mix(oldHi[i], oldLo[i], oldEndpoint[i]), oldTat[i]);
+            }
+            // forced evictions were already counted
+            evictions.add(Math.max(0, before - size));
+        }
+
+        private void allocate(int slots) {
+            hi = new long[slots];
+            lo = new long[slots];
+            tat = new long[slots];
+            endpoint = new int[slots];
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.febin.auth.ratelimit;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A request whose (small) body has already been read, so a filter can look at it and the
+ * controller can still read it afterwards.
+ */
+final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+    private final byte[] body;
+
+    private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+        super(request);
+        this.body = body;
+    }
+
+    /**
+     * Read the whole body of {@code request}.
+     *
+     * @return null if the body is larger than {@code maxBytes}
+     */
+    static CachedBodyRequest wrap(HttpServletRequest request, int maxBytes) throws IOException {
+        byte[] body = request.getInputStream().readNBytes(maxBytes + 1);
+        return body.length > maxBytes ? null : new CachedBodyRequest(request, body);
+    }
+
+    byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * A fresh stream over the cached body. Non-blocking reads work as the Servlet spec describes:
+     * the whole body is already available, so a {@link ReadListener} is told so (and that all
+     * data has been read, once it has) as soon as it is set.
+     */
+    @Override
+    public ServletInputStream getInputStream() {
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+            private ReadListener listener;
+
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener listener) {
+                Objects.requireNonNull(listener, "listener");
+                if (this.listener != null) throw new IllegalStateException("ReadListener already set");
+                if (!isAsyncStarted()) throw new IllegalStateException("Non-blocking read requires async processing");
+                this.listener = listener;
+                try {
+                    if (!isFinished()) listener.onDataAvailable();
+                    if (isFinished()) listener.onAllDataRead();
+                } catch (IOException | RuntimeException e) {
+                    listener.onError(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        String encoding = getCharacterEncoding();
+        Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+
+    @Override
+    public int getContentLength() {
+        return body.length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return body.length;
+    }
+}
@@ -0,0 +1,59 @@
+package com.febin.auth.ratelimit;
+
+/**
+ * An address range such as {@code 10.0.0.0/8} or {@code 2001:db8::/32}; a bare address is a
+ * single-host block. IPv4 blocks only match IPv4 clients (they are held as IPv4-mapped IPv6).
+ */
+public record CidrBlock(long hi, long lo, int prefixLength) {
+
+    public static CidrBlock parse(String cidr) {
+        String value = cidr.trim();
+        int slash = value.indexOf('/');
+        String address = slash < 0 ? value : value.substring(0, slash);
+        ClientAddress ip = ClientAddress.parseIp(address);
+        if (ip == null) {
+            throw new IllegalArgumentException("Not an IP address or CIDR block: " + cidr);
+        }
+        int maxBits = ip.isIpv4() ? 32 : 128;
+        int bits;
+        try {
+            bits = slash < 0 ? maxBits : Integer.parseInt(value.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid prefix length in " + cidr);
+        }
+        if (bits < 0 || bits > maxBits) {
+            throw new IllegalArgumentException("Invalid prefix length in " + cidr);
+        }
+        int prefixLength = bits + (128 - maxBits);
+        return new CidrBlock(ip.hi() & mask(prefixLength), ip.lo() & mask(prefixLength - 64), prefixLength);
+    }
+
+    public boolean contains(ClientAddress address) {
+        return (address.hi() & mask(prefixLength)) == hi
+                && (address.lo() & mask(prefixLength - 64)) == lo;
+    }
+
+    @Override
+    public String toString() {
+        if (new ClientAddress(hi, lo).isIpv4()) {
+            return (lo >>> 24 & 0xFF) + "." + (lo >>> 16 & 0xFF) + "." + (lo >>> 8 & 0xFF) + "." + (lo & 0xFF)
+                    + "/" + (prefixLength - 96);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int group = 0; group < 8; group++) {
+            long half = group < 4 ? hi : lo;
+            if (group > 0) sb.append(':');
+            sb.append(Long.toHexString(half >>> (48 - 16 * (group % 4)) & 0xFFFF));
+        }
+        return sb.append('/').append(prefixLength).toString();
+    }
+
+    /**
+     * Mask keeping the top {@code bits} of a 64-bit half (clamped to 0..64).
+     */
+    private static long mask(int bits) {
+        if (bits <= 0) return 0;
+        if (bits >= 64) return -1L;
+        return -1L << (64 - bits);
+    }
+}
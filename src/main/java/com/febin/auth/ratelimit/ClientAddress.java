@@ -0,0 +1,137 @@
+package com.febin.auth.ratelimit;
+
+/**
+ * A client address as 128 bits: IPv6 as is, IPv4 in its IPv4-mapped IPv6 form.
+ * <p>
+ * Parsing never touches DNS. Anything that is not an IP literal (a malformed X-Forwarded-For,
+ * a "unknown" placeholder) is hashed into a reserved range instead, so it still gets a stable key.
+ */
+public record ClientAddress(long hi, long lo) {
+
+    // ::ffff:0:0/96
+    private static final long IPV4_MAPPED_LO_PREFIX = 0x0000_FFFF_0000_0000L;
+    // 0100::/64 is the IPv6 discard-only prefix, never a real client address
+    private static final long NON_IP_HI = 0x0100_0000_0000_0000L;
+
+    public static ClientAddress parse(String address) {
+        if (address == null) return ofNonIp("");
+        ClientAddress ip = parseIp(address);
+        return ip != null ? ip : ofNonIp(address);
+    }
+
+    /**
+     * Like {@link #parse(String)}, but null if the value is not an IP literal.
+     */
+    public static ClientAddress parseIp(String address) {
+        long v4 = parseIpv4(address);
+        if (v4 >= 0) return new ClientAddress(0, IPV4_MAPPED_LO_PREFIX | v4);
+        if (address.indexOf(':') >= 0) return parseIpv6(address);
+        return null;
+    }
+
+    /**
+     * True for IPv4 addresses (held as ::ffff:a.b.c.d).
+     */
+    public boolean isIpv4() {
+        return hi == 0 && (lo & 0xFFFF_FFFF_0000_0000L) == IPV4_MAPPED_LO_PREFIX;
+    }
+
+    /**
+     * The key this client's buckets are kept under: the address itself for IPv4 and non-IP values,
+     * the /64 prefix for IPv6. A single IPv6 subscriber is usually given a whole /64, so keying
+     * individual addresses would let one client rotate through fresh buckets at will.
+     */
+    public ClientAddress bucketKey() {
+        if (isIpv4() || hi == NON_IP_HI) return this;
+        return lo == 0 ? this : new ClientAddress(hi, 0);
+    }
+
+    private static ClientAddress ofNonIp(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return new ClientAddress(NON_IP_HI, h);
+    }
+
+    /**
+     * Dotted quad to an unsigned 32-bit value, or -1.
+     */
+    private static long parseIpv4(String s) {
+        long value = 0;
+        int octets = 0;
+        int octet = -1;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) return -1;
+            } else if (c == '.' && octet >= 0 && octets < 3) {
+                value = (value << 8) | octet;
+                octets++;
+                octet = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (octet < 0 || octets != 3) return -1;
+        return (value << 8) | octet;
+    }
+
+    private static ClientAddress parseIpv6(String s) {
+        int zone = s.indexOf('%');
+        if (zone >= 0) s = s.substring(0, zone);
+        if (s.startsWith("[") && s.endsWith("]")) s = s.substring(1, s.length() - 1);
+
+        int[] groups = new int[8];
+        int count = 0;
+        int gap = -1;
+        int i = 0;
+        if (s.startsWith("::")) {
+            gap = 0;
+            i = 2;
+        }
+        while (i < s.length()) {
+            if (count == 8) return null;
+            // embedded IPv4 tail, e.g. ::ffff:192.0.2.1
+            int nextColon = s.indexOf(':', i);
+            String part = nextColon < 0 ? s.substring(i) : s.substring(i, nextColon);
+            if (nextColon < 0 && part.indexOf('.') >= 0) {
+                long v4 = parseIpv4(part);
+                if (v4 < 0 || count > 6) return null;
+                groups[count++] = (int) (v4 >>> 16);
+                groups[count++] = (int) (v4 & 0xFFFF);
+                break;
+            }
+            if (part.isEmpty() || part.length() > 4) return null;
+            int group = 0;
+            for (int j = 0; j < part.length(); j++) {
+                int digit = Character.digit(part.charAt(j), 16);
+                if (digit < 0) return null;
+                group = (group << 4) | digit;
+            }
+            groups[count++] = group;
+            if (nextColon < 0) break;
+            i = nextColon + 1;
+            if (i < s.length() && s.charAt(i) == ':') {
+                if (gap >= 0) return null;
+                gap = count;
+                i++;
+            } else if (i == s.length()) {
+                return null;
+            }
+        }
+        if (gap < 0 && count != 8) return null;
+        if (gap >= 0) {
+            if (count == 8) return null;
+            int shift = 8 - count;
+            System.arraycopy(groups, gap, groups, gap + shift, count - gap);
+            for (int k = gap; k < gap + shift; k++) groups[k] = 0;
+        }
+        long hi = 0;
+        long lo = 0;
+        for (int k = 0; k < 4; k++) hi = (hi << 16) | groups[k];
+        for (int k = 4; k < 8; k++) lo = (lo << 16) | groups[k];
+        return new ClientAddress(hi, lo);
+    }
+}
@@ -0,0 +1,83 @@
+package com.febin.auth.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Works out which client sent a request, for rate limiting and abuse metrics.
+ * <p>
+ * X-Forwarded-For is only honoured when the connection comes from one of {@code app.trusted-proxies}
+ * (IPs or CIDR blocks). The header is then read from the right, skipping trusted proxies, and the
+ * first hop that is not one is the client: entries further left were supplied by the client and
+ * could say anything. Without trusted proxies the header is ignored and the peer address is used.
+ */
+@Component
+public class ClientIpResolver {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+    private static final String UNKNOWN = "unknown";
+
+    private final List<CidrBlock> trustedProxies = new ArrayList<>();
+
+    /**
+     * @throws IllegalArgumentException if an entry is not an IP address or CIDR block
+     */
+    public ClientIpResolver(@Value("${app.trusted-proxies:}") List<String> trustedProxies) {
+        for (String entry : trustedProxies) {
+            if (entry != null && !entry.isBlank()) this.trustedProxies.add(CidrBlock.parse(entry));
+        }
+    }
+
+    public ClientAddress resolve(HttpServletRequest request) {
+        return ClientAddress.parse(resolveIp(request));
+    }
+
+    /**
+     * The client address as written by the peer or the nearest untrusted hop ("unknown" if there is none).
+     */
+    public String resolveIp(HttpServletRequest request) {
+        String remote = request.getRemoteAddr();
+        if (remote == null || remote.isBlank()) return UNKNOWN;
+        if (!isTrusted(remote)) return remote;
+
+        List<String> hops = forwardedHops(request);
+        String client = remote;
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            client = hops.get(i);
+            if (!isTrusted(client)) return client;
+        }
+        // every hop is one of our proxies: the left-most is as close to the client as we get
+        return client;
+    }
+
+    private boolean isTrusted(String address) {
+        if (trustedProxies.isEmpty()) return false;
+        ClientAddress ip = ClientAddress.parseIp(address);
+        if (ip == null) return false;
+        for (CidrBlock block : trustedProxies) {
+            if (block.contains(ip)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Every X-Forwarded-For entry, in order, across repeated headers.
+     */
+    private static List<String> forwardedHops(HttpServletRequest request) {
+        List<String> hops = new ArrayList<>();
+        Enumeration<String> headers = request.getHeaders(FORWARDED_FOR);
+        if (headers == null) return hops;
+        while (headers.hasMoreElements()) {
+            for (String hop : headers.nextElement().split(",")) {
+                String trimmed = hop.trim();
+                if (!trimmed.isEmpty()) hops.add(trimmed);
+            }
+        }
+        return hops;
+    }
+}
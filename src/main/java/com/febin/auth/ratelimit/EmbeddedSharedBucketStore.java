@@ -0,0 +1,53 @@
+package com.febin.auth.ratelimit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process stand-in for {@link RedisSharedBucketStore} with the same batch semantics, so the
+ * leasing code path can be exercised without a Redis server ({@code app.rate-limit.backend=embedded}).
+ * Not shared between instances.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.backend", havingValue = "embedded")
+public class EmbeddedSharedBucketStore implements SharedBucketStore {
+
+    private final Map<String, Long> tats = new ConcurrentHashMap<>();
+
+    @Override
+    public Grant acquire(String key, long tokens, long returned, TokenBucket.Limit limit) {
+        long now = TokenBucket.now();
+        Grant[] result = new Grant[1];
+        tats.compute(key, (k, tat) -> {
+            long base = tat == null ? now : Math.max(tat - returned * limit.intervalNanos(), now);
+            long ahead = base - now;
+            long available = (limit.toleranceNanos() - ahead) / limit.intervalNanos();
+            if (available <= 0) {
+                result[0] = new Grant(-(ahead + limit.intervalNanos() - limit.toleranceNanos()), 0);
+                return tat;
+            }
+            long granted = Math.min(tokens, available);
+            result[0] = new Grant(granted, available - granted);
+            return base + granted * limit.intervalNanos();
+        });
+        return result[0];
+    }
+
+    @Override
+    public String name() {
+        return "embedded";
+    }
+
+    /**
+     * Drop buckets that have refilled completely, as Redis does through the key TTL.
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.evict-interval-ms:30000}")
+    public void evictIdle() {
+        long now = TokenBucket.now();
+        tats.values().removeIf(tat -> tat <= now);
+    }
+}
@@ -0,0 +1,195 @@
+package com.febin.auth.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits shared by every instance through a {@link SharedBucketStore}, without a round-trip per request.
+ * <p>
+ * When a client has no tokens on this node, the node leases a small batch from the shared bucket
+ * and spends it locally for up to {@code app.rate-limit.lease-ttl-ms}; only when the batch runs
+ * out (or expires) does the next request go to the store again. Leased tokens are already taken
+ * from the shared bucket, so the cluster never lets more through than the configured limit. Tokens
+ * left in an expired lease are handed back with the client's next store call; only a lease dropped
+ * by {@link #evictIdle()} (the client went quiet) loses them, and by then they would mostly have
+ * refilled anyway. The batch is at most a tenth of the bucket's capacity (and at most
+ * {@code app.rate-limit.lease-size}), so tight limits such as signup are simply checked against
+ * the store on every request.
+ * <p>
+ * The tokens left reported for a request are the shared bucket's count as of this node's last
+ * store call for the client, plus what is left of the lease: other nodes may have spent some since,
+ * and tokens refilled since are not counted.
+ * <p>
+ * A rejection is remembered locally until the client may retry, so a client hammering a limited
+ * endpoint does not turn into a stream of store calls either. If the store cannot be reached, the
+ * node falls back to its own {@link BucketStore} (per-instance limits, as with the local backend)
+ * and retries the store after {@code app.rate-limit.store-retry-ms}.
+ */
+@Component
+@ConditionalOnExpression("'${app.rate-limit.backend:local}' != 'local'")
+public class LeasingRateLimitBackend implements RateLimitBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeasingRateLimitBackend.class);
+
+    private final SharedBucketStore store;
+    private final BucketStore fallback;
+    private final long leaseSize;
+    private final long leaseTtlNanos;
+    private final long storeRetryNanos;
+    private final int maxLeases;
+
+    private final Map<LeaseKey, Lease> leases = new ConcurrentHashMap<>();
+    // store unavailable until this time on the bucket clock; 0 when healthy
+    private final AtomicLong storeDownUntil = new AtomicLong();
+
+    private final LongAdder localDecisions = new LongAdder();
+    private final LongAdder storeCalls = new LongAdder();
+    private final LongAdder storeErrors = new LongAdder();
+    private final LongAdder fallbackDecisions = new LongAdder();
+
+    public LeasingRateLimitBackend(SharedBucketStore store,
+                                   @Value("${app.rate-limit.max-buckets:262144}") int maxBuckets,
+                                   @Value("${app.rate-limit.lease-size:10}") long leaseSize,
+                                   @Value("${app.rate-limit.lease-ttl-ms:1000}") long leaseTtlMs,
+                                   @Value("${app.rate-limit.store-retry-ms:5000}") long storeRetryMs) {
+        this.store = store;
+        this.fallback = new BucketStore(maxBuckets);
+        this.leaseSize = Math.max(1, leaseSize);
+        this.leaseTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, leaseTtlMs));
+        this.storeRetryNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, storeRetryMs));
+        this.maxLeases = Math.max(1, maxBuckets);
+    }
+
+    @Override
+    public long tryConsume(ClientAddress client, RateLimitRules.Rule rule) {
+        return tryConsume(client, rule, TokenBucket.now());
+    }
+
+    long tryConsume(ClientAddress client, RateLimitRules.Rule rule, long now) {
+        TokenBucket.Limit limit = rule.limit();
+        LeaseKey key = new LeaseKey(client.hi(), client.lo(), rule.id());
+
+        long unspent = 0;
+        Lease lease = leases.get(key);
+        if (lease != null && lease.validUntil - now > 0) {
+            if (lease.denied) {
+                localDecisions.increment();
+                return -(lease.validUntil - now);
+            }
+            long left = lease.tokens.decrementAndGet();
+            if (left >= 0) {
+                localDecisions.increment();
+                return lease.storeRemaining + left;
+            }
+        } else if (lease != null && !lease.denied) {
+            // expired: claim what is left so exactly one request hands it back
+            unspent = Math.max(0, lease.tokens.getAndSet(Long.MIN_VALUE / 2));
+        }
+
+        if (storeDownUntil.get() - now > 0) {
+            fallbackDecisions.increment();
+            return fallback.tryConsume(client, rule.id(), limit, now);
+        }
+
+        SharedBucketStore.Grant grant;
+        try {
+            storeCalls.increment();
+            grant = store.acquire(storeKey(rule, client), batchSize(limit), unspent, limit);
+            if (storeDownUntil.get() != 0) storeDownUntil.set(0);
+        } catch (RuntimeException e) {
+            storeErrors.increment();
+            if (storeDownUntil.getAndSet(now + storeRetryNanos) == 0) {
+                logger.warn("Rate-limit store {} unavailable, using per-instance limits for {} ms: {}",
+                        store.name(), TimeUnit.NANOSECONDS.toMillis(storeRetryNanos), e.getMessage());
+            }
+            fallbackDecisions.increment();
+            return fallback.tryConsume(client, rule.id(), limit, now);
+        }
+
+        long granted = grant.granted();
+        if (granted < 0) {
+            remember(key, new Lease(0, 0, now - granted, true));
+            return granted;
+        }
+        // this request takes the first token of the batch
+        remember(key, new Lease(granted - 1, grant.remaining(), now + leaseTtlNanos, false));
+        return grant.remaining() + granted - 1;
+    }
+
+    /**
+     * Drop expired leases and idle fallback buckets.
+     */
+    @Override
+    public void evictIdle() {
+        long now = TokenBucket.now();
+        leases.values().removeIf(lease -> lease.validUntil - now <= 0);
+        fallback.evictIdle();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", store.name());
+        stats.put("storeAvailable", storeDownUntil.get() - TokenBucket.now() <= 0);
+        stats.put("leases", leases.size());
+        stats.put("localDecisions", localDecisions.sum());
+        stats.put("storeCalls", storeCalls.sum());
+        stats.put("storeErrors", storeErrors.sum());
+        stats.put("fallbackDecisions", fallbackDecisions.sum());
+        stats.put("fallbackBuckets", fallback.getStats());
+        return stats;
+    }
+
+    /**
+     * Rule ids are per process, so the shared key names the rule by its pattern.
+     */
+    private static String storeKey(RateLimitRules.Rule rule, ClientAddress client) {
+        return rule.pattern() + "|" + Long.toHexString(client.hi()) + ":" + Long.toHexString(client.lo());
+    }
+
+    private long batchSize(TokenBucket.Limit limit) {
+        return Math.max(1, Math.min(leaseSize, limit.capacity() / 10));
+    }
+
+    private void remember(LeaseKey key, Lease lease) {
+        if (leases.size() >= maxLeases) {
+            evictIdle();
+            // still full: skip caching, the next request just asks the store again
+            if (leases.size() >= maxLeases) return;
+        }
+        leases.put(key, lease);
+    }
+
+    // ------------ Helper classes ------------
+
+    private record LeaseKey(long hi, long lo, int ruleId) {
+    }
+
+    /**
+     * Tokens this node may still hand out until validUntil, or a rejection cached until then.
+     */
+    private static final class Lease {
+        final AtomicLong tokens;
+        // left in the shared bucket when the lease was taken
+        final long storeRemaining;
+        final long validUntil;
+        final boolean denied;
+
+        Lease(long tokens, long storeRemaining, long validUntil, boolean denied) {
+            this.tokens = new AtomicLong(tokens);
+            this.storeRemaining = storeRemaining;
+            this.validUntil = validUntil;
+            this.denied = denied;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.febin.auth.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Buckets in this process only. Each instance enforces the full limit on its own, so with N
+ * replicas behind a load balancer a client effectively gets up to N times the configured rate.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.backend", havingValue = "local", matchIfMissing = true)
+public class LocalRateLimitBackend implements RateLimitBackend {
+
+    private final BucketStore buckets;
+
+    public LocalRateLimitBackend(@Value("${app.rate-limit.max-buckets:262144}") int maxBuckets) {
+        this.buckets = new BucketStore(maxBuckets);
+    }
+
+    @Override
+    public long tryConsume(ClientAddress client, RateLimitRules.Rule rule) {
+        return buckets.tryConsume(client, rule.id(), rule.limit());
+    }
+
+    @Override
+    public void evictIdle() {
+        buckets.evictIdle();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", "local");
+        stats.putAll(buckets.getStats());
+        return stats;
+    }
+}
@@ -0,0 +1,93 @@
+package com.febin.auth.ratelimit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps path patterns to values, matched one path segment at a time.
+ * <p>
+ * A pattern segment is either a literal, {@code *} (exactly one segment) or {@code **} (any number
+ * of segments, including none). When several patterns match, literals win over {@code *}, which wins
+ * over {@code **}, segment by segment from the left. Empty segments are ignored, so
+ * {@code /api/auth/login/} and {@code //api/auth/login} match the same patterns as {@code /api/auth/login}.
+ * <p>
+ * Built once and never modified afterwards, so lookups need no locking.
+ */
+final class PathTrie<T> {
+
+    private final Node<T> root = new Node<>();
+
+    /**
+     * @throws IllegalArgumentException if the same pattern (after normalisation) is added twice
+     */
+    void add(String pattern, T value) {
+        Node<T> node = root;
+        for (String segment : segments(pattern)) {
+            node = switch (segment) {
+                case "*" -> node.star != null ? node.star : (node.star = new Node<>());
+                case "**" -> node.globstar != null ? node.globstar : (node.globstar = new Node<>());
+                default -> node.literals.computeIfAbsent(segment, s -> new Node<>());
+            };
+        }
+        if (node.value != null) {
+            throw new IllegalArgumentException("Duplicate rate-limit pattern: " + pattern);
+        }
+        node.value = value;
+    }
+
+    /**
+     * The value of the most specific pattern matching {@code path}, or null.
+     */
+    T match(String path) {
+        return match(root, segments(path), 0);
+    }
+
+    private static <T> T match(Node<T> node, List<String> segments, int index) {
+        if (index == segments.size()) {
+            if (node.value != null) return node.value;
+            // a trailing ** also matches nothing
+            return node.globstar != null ? match(node.globstar, segments, index) : null;
+        }
+        String segment = segments.get(index);
+        Node<T> literal = node.literals.get(segment);
+        if (literal != null) {
+            T value = match(literal, segments, index + 1);
+            if (value != null) return value;
+        }
+        if (node.star != null) {
+            T value = match(node.star, segments, index + 1);
+            if (value != null) return value;
+        }
+        if (node.globstar != null) {
+            // let ** swallow as few segments as possible
+            for (int next = index; next <= segments.size(); next++) {
+                T value = match(node.globstar, segments, next);
+                if (value != null) return value;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (i > start) segments.add(path.substring(start, i));
+                start = i + 1;
+            }
+        }
+        return segments;
+    }
+
+    // ------------ Helper classes ------------
+
+    private static final class Node<T> {
+        final Map<String, Node<T>> literals = new HashMap<>();
+        Node<T> star;
+        Node<T> globstar;
+        T value;
+    }
+}
@@ -0,0 +1,27 @@
+package com.febin.auth.ratelimit;
+
+import java.util.Map;
+
+/**
+ * Where {@link RateLimitFilter} keeps its buckets.
+ * <p>
+ * Selected with {@code app.rate-limit.backend}: {@code local} (default) keeps everything in this
+ * process, {@code redis} shares the limits between all instances through Redis, and
+ * {@code embedded} runs the shared-store code path against an in-process stand-in (tests, local runs).
+ */
+public interface RateLimitBackend {
+
+    /**
+     * Take one token from the bucket of {@code client} under {@code rule}.
+     *
+     * @return the tokens left (>= 0), or minus the nanoseconds until a token is available
+     */
+    long tryConsume(ClientAddress client, RateLimitRules.Rule rule);
+
+    /**
+     * Drop state that no longer affects any decision; called periodically by the filter.
+     */
+    void evictIdle();
+
+    Map<String, Object> getStats();
+}
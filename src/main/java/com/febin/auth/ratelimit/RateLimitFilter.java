@@ -1,180 +1,255 @@
 package com.febin.auth.ratelimit;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.febin.auth.config.RateLimitProperties;
+import com.febin.auth.util.TokenHashes;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.beans.factory.annotation.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.time.Instant;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Simple in-memory token-bucket rate limiting filter.
+ * Token-bucket rate limiting filter.
  * <p>
- * IMPORTANT:
- * - This implementation is suitable for single-instance or local development.
- * - For production (multi-instance), replace with a distributed implementation
- *   (e.g. Bucket4j + Redis, or Redis Lua scripts).
+ * Keying: client IP + endpoint rule (so each IP has its own bucket per rule; IPv6 clients are keyed
+ * by their /64, see {@link ClientAddress#bucketKey()}). The client IP comes from {@link ClientIpResolver},
+ * which only believes X-Forwarded-For from trusted proxies. Buckets are kept
+ * by a {@link RateLimitBackend}: in this instance only ({@code app.rate-limit.backend=local}), or
+ * shared by all instances through Redis ({@code redis}) so limits hold across replicas.
  * <p>
- * Keying: client IP + endpoint path (so each IP has its own bucket per endpoint).
+ * Rules come from {@link RateLimitProperties}, compiled into a {@link RateLimitRules} table held in
+ * an {@link AtomicReference}. Once the context is up, the table is recompiled with the application's
+ * request mappings, which get one default bucket each. {@link #reload(RateLimitProperties)} swaps in a new table at runtime
+ * (e.g. to tighten limits during an incident); requests in flight finish with the table they started with.
+ * {@link RateLimitRuleSync} calls it with the rule set published for all instances.
+ * <p>
+ * With {@code app.rate-limit.usePerAccountForLogin}, POST /api/auth/login is also limited per target
+ * account ({@code app.rate-limit.per-account.*}): the body is cached, {@code usernameOrEmail} is read
+ * from it with a streaming parser, and over-limit attempts get a 429 before authentication (and its
+ * BCrypt check) runs. A client rejected per IP does not spend a token of the account. Whitelisted
+ * clients skip the per-IP limit only: the per-account limit protects the account, wherever the
+ * attempts come from.
  */
 @Component
 public class RateLimitFilter extends OncePerRequestFilter {
 
-    // Toggle global enable/disable
-    private final boolean enabled;
-
-    // Endpoint-specific configuration (hardcoded defaults here; you can move these to properties)
-    private final Map<String, EndpointConfig> endpointConfigs = new ConcurrentHashMap<>();
-
-    // Map of buckets keyed by (ip + ":" + path)
-    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
-
-    public RateLimitFilter(
-            @Value("${app.rate-limit.enabled:true}") boolean enabled,
-            @Value("${app.rate-limit.endpoints./api/auth/password/strength.capacity:30}") int strengthCapacity,
-            @Value("${app.rate-limit.endpoints./api/auth/password/strength.refillTokens:30}") int strengthRefillTokens,
-            @Value("${app.rate-limit.endpoints./api/auth/password/strength.refillPeriodSeconds:60}") int strengthRefillPeriodSeconds,
-            @Value("${app.rate-limit.endpoints./api/auth/signup.capacity:5}") int signupCapacity,
-            @Value("${app.rate-limit.endpoints./api/auth/signup.refillTokens:5}") int signupRefillTokens,
-            @Value("${app.rate-limit.endpoints./api/auth/signup.refillPeriodSeconds:300}") int signupRefillPeriodSeconds,
-            @Value("${app.rate-limit.endpoints./api/auth/login.capacity:20}") int loginCapacity,
-            @Value("${app.rate-limit.endpoints./api/auth/login.refillTokens:20}") int loginRefillTokens,
-            @Value("${app.rate-limit.endpoints./api/auth/login.refillPeriodSeconds:60}") int loginRefillPeriodSeconds
-    ) {
-        this.enabled = enabled;
-
-        // populate endpoint config map
-        endpointConfigs.put("/api/auth/password/strength",
-                new EndpointConfig(strengthCapacity, strengthRefillTokens, strengthRefillPeriodSeconds));
-        endpointConfigs.put("/api/auth/signup",
-                new EndpointConfig(signupCapacity, signupRefillTokens, signupRefillPeriodSeconds));
-        endpointConfigs.put("/api/auth/login",
-                new EndpointConfig(loginCapacity, loginRefillTokens, loginRefillPeriodSeconds));
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String ACCOUNT_FIELD = "usernameOrEmail";
+    // a login body is two short strings; anything much larger is not a genuine attempt
+    private static final int MAX_LOGIN_BODY_BYTES = 16 * 1024;
+    private static final PathTrie<Boolean> LOGIN_ROUTE = new PathTrie<>();
+
+    static {
+        LOGIN_ROUTE.add("/api/auth/login", Boolean.TRUE);
+    }
+
+    // Current rule table, replaced as a whole on reload
+    private final AtomicReference<RateLimitRules> rules;
+    private final RuleIds ruleIds = new RuleIds();
+    // the application's request mappings as trie patterns, known once the context is refreshed
+    private volatile List<String> appRoutes = List.of();
+
+    // Buckets keyed by (client address or hashed account, rule id)
+    private final RateLimitBackend backend;
+    private final ClientIpResolver clientIpResolver;
+
+    private final LongAdder accountRejections = new LongAdder();
+
+    public RateLimitFilter(RateLimitBackend backend, ClientIpResolver clientIpResolver, RateLimitProperties properties) {
+        this.backend = backend;
+        this.clientIpResolver = clientIpResolver;
+        this.rules = new AtomicReference<>(RateLimitRules.compile(properties, appRoutes, ruleIds));
+    }
+
+    /**
+     * Pick up the routes of every request mapping, so each gets its own default bucket.
+     */
+    @EventListener
+    public void onContextRefreshed(ContextRefreshedEvent event) {
+        Set<String> routes = new TreeSet<>();
+        event.getApplicationContext().getBeansOfType(RequestMappingInfoHandlerMapping.class).values()
+                .forEach(mapping -> mapping.getHandlerMethods().keySet()
+                        .forEach(info -> info.getPatternValues()
+                                .forEach(pattern -> routes.add(RateLimitRules.routePattern(pattern)))));
+        appRoutes = List.copyOf(routes);
+        rules.set(RateLimitRules.compile(rules.get().getSource(), appRoutes, ruleIds));
+    }
+
+    /**
+     * Compile {@code properties} and make them the active rules.
+     *
+     * @throws IllegalArgumentException if a pattern or whitelist entry is invalid; the old rules stay active
+     */
+    public RateLimitRules reload(RateLimitProperties properties) {
+        RateLimitRules compiled = RateLimitRules.compile(properties, appRoutes, ruleIds);
+        rules.set(compiled);
+        logger.info("Rate-limit rules reloaded: {}", compiled.describe());
+        return compiled;
+    }
+
+    /**
+     * Compile {@code properties} without applying them, to reject a bad rule set before it is published.
+     *
+     * @throws IllegalArgumentException if a pattern or whitelist entry is invalid
+     */
+    RateLimitRules check(RateLimitProperties properties) {
+        // throwaway ids, so a rejected or not yet published rule set uses up none
+        return RateLimitRules.compile(properties, appRoutes, new RuleIds());
+    }
+
+    public RateLimitRules getRules() {
+        return rules.get();
+    }
+
+    /**
+     * Drop buckets that have refilled completely; they would behave exactly like new ones.
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.evict-interval-ms:30000}")
+    public void evictIdleBuckets() {
+        backend.evictIdle();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(backend.getStats());
+        stats.put("accountRejections", accountRejections.sum());
+        return stats;
     }
 
     @Override
     protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
-        return !enabled;
+        return !rules.get().isEnabled();
     }
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest req, @NonNull HttpServletResponse res, @NonNull FilterChain chain)
             throws ServletException, IOException {
 
-        String path = req.getRequestURI();
-        EndpointConfig cfg = endpointConfigs.get(path);
+        RateLimitRules current = rules.get();
+        String path = requestPath(req);
+        RateLimitRules.Rule rule = current.match(path);
+        RateLimitRules.Rule accountRule = isLoginAttempt(req, path) ? current.getAccountRule() : null;
 
         // If this path isn't rate-limited, allow through
-        if (cfg == null) {
+        if (rule == null && accountRule == null) {
             chain.doFilter(req, res);
             return;
         }
 
-        String ip = extractClientIp(req);
-        if (!StringUtils.hasText(ip)) ip = "unknown";
-
-        String bucketKey = ip + ":" + path;
-
-        TokenBucket bucket = buckets.computeIfAbsent(bucketKey, k ->
-                new TokenBucket(cfg.capacity, cfg.refillTokens, Duration.ofSeconds(cfg.refillPeriodSeconds))
-        );
-
-        boolean allowed = bucket.tryConsume();
-
-        if (allowed) {
+        ClientAddress client = clientIpResolver.resolve(req);
+        if (rule != null && !current.isWhitelisted(client)) {
+            // one call decides, and tells us either the tokens left or how long to wait
+            long remaining = backend.tryConsume(client.bucketKey(), rule);
+            if (remaining < 0) {
+                reject(res, remaining);
+                return;
+            }
             // Add headers to inform client about remaining tokens
-            res.setHeader("X-RateLimit-Remaining", String.valueOf(bucket.getAvailableTokens()));
-            res.setHeader("X-RateLimit-Limit", String.valueOf(cfg.capacity));
-            chain.doFilter(req, res);
-        } else {
-            long waitSeconds = bucket.getSecondsToRefillOne();
-            if (waitSeconds <= 0) waitSeconds = 1;
-            res.setStatus(429); // Too Many Requests
-            res.setHeader("Retry-After", String.valueOf(waitSeconds));
-            res.setHeader("X-RateLimit-Retry-After-Seconds", String.valueOf(waitSeconds));
-            res.setContentType("application/json");
-            String body = String.format("{\"error\":\"Too many requests\",\"retryAfterSeconds\":%d}", waitSeconds);
-            res.getWriter().write(body);
+            res.setHeader("X-RateLimit-Remaining", String.valueOf(remaining));
+            res.setHeader("X-RateLimit-Limit", String.valueOf(rule.limit().capacity()));
         }
-    }
 
-    private String extractClientIp(HttpServletRequest request) {
-        String xff = request.getHeader("X-Forwarded-For");
-        if (StringUtils.hasText(xff)) {
-            return xff.split(",")[0].trim();
+        HttpServletRequest forwarded = req;
+        if (accountRule != null) {
+            // credential stuffing spreads over many IPs: also limit per target account, before any password check
+            CachedBodyRequest cached = CachedBodyRequest.wrap(req, MAX_LOGIN_BODY_BYTES);
+            if (cached == null) {
+                res.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+                res.setContentType("application/json");
+                res.getWriter().write("{\"error\":\"Request body too large\"}");
+                return;
+            }
+            forwarded = cached;
+            String account = extractAccount(cached.getBody());
+            if (account != null) {
+                long remaining = backend.tryConsume(accountKey(account), accountRule);
+                if (remaining < 0) {
+                    accountRejections.increment();
+                    reject(res, remaining);
+                    return;
+                }
+            }
         }
-        return request.getRemoteAddr();
+        chain.doFilter(forwarded, res);
     }
 
-    // ------------ Helper classes ------------
-
-    private record EndpointConfig(int capacity, int refillTokens, int refillPeriodSeconds) {
+    private void reject(HttpServletResponse res, long rejection) throws IOException {
+        long waitSeconds = TokenBucket.retryAfterSeconds(rejection);
+        res.setStatus(429); // Too Many Requests
+        res.setHeader("Retry-After", String.valueOf(waitSeconds));
+        res.setHeader("X-RateLimit-Retry-After-Seconds", String.valueOf(waitSeconds));
+        res.setContentType("application/json");
+        String body = String.format("{\"error\":\"Too many requests\",\"retryAfterSeconds\":%d}", waitSeconds);
+        res.getWriter().write(body);
     }
 
     /**
-     * Very small token-bucket implementation.
-     * - capacity: max tokens
-     * - refillTokens: tokens added each refillPeriod
-     * - refillPeriod: interval for refillTokens
-     * <p>
-     * This implementation is intentionally simple and synchronized per bucket.
-     * For heavy load / multi-instance, replace with a distributed bucket (Redis or Bucket4j).
+     * The path within the application as the container decoded and normalized it, i.e. what the
+     * request is dispatched on. The raw URI would let {@code /api/auth/logi%6E} slip past the rules.
      */
-    private static class TokenBucket {
-        private final int capacity;
-        private final int refillTokens;
-        private final Duration refillPeriod;
-
-        private double availableTokens;
-        private Instant lastRefill;
-
-        TokenBucket(int capacity, int refillTokens, Duration refillPeriod) {
-            this.capacity = Math.max(1, capacity);
-            this.refillTokens = Math.max(0, refillTokens);
-            this.refillPeriod = refillPeriod != null ? refillPeriod : Duration.ofSeconds(60);
-            this.availableTokens = this.capacity;
-            this.lastRefill = Instant.now();
-        }
-
-        synchronized boolean tryConsume() {
-            refillIfNeeded();
-            if (availableTokens >= 1.0) {
-                availableTokens -= 1.0;
-                return true;
-            }
-            return false;
-        }
+    private static String requestPath(HttpServletRequest req) {
+        String pathInfo = req.getPathInfo();
+        return pathInfo == null ? req.getServletPath() : req.getServletPath() + pathInfo;
+    }
 
-        synchronized void refillIfNeeded() {
-            Instant now = Instant.now();
-            long periodsPassed = Duration.between(lastRefill, now).dividedBy(refillPeriod);
-            if (periodsPassed <= 0) return;
-            double tokensToAdd = periodsPassed * (double) refillTokens;
-            availableTokens = Math.min(capacity, availableTokens + tokensToAdd);
-            // move lastRefill forward by the consumed periods
-            lastRefill = lastRefill.plus(refillPeriod.multipliedBy(periodsPassed));
-        }
+    private static boolean isLoginAttempt(HttpServletRequest req, String path) {
+        return HttpMethod.POST.matches(req.getMethod()) && LOGIN_ROUTE.match(path) != null;
+    }
 
-        synchronized long getSecondsToRefillOne() {
-            refillIfNeeded();
-            if (availableTokens >= 1.0) return 0;
-            Instant nextRefill = lastRefill.plus(refillPeriod);
-            long secs = Duration.between(Instant.now(), nextRefill).getSeconds();
-            return Math.max(1, secs);
+    /**
+     * The {@code usernameOrEmail} of a login body, trimmed and lower-cased, or null if there is none.
+     * Streams over the top-level fields without binding; like the controller's binding, the last
+     * occurrence of a repeated field wins, so a decoy value in front cannot dodge the limit.
+     */
+    static String extractAccount(byte[] body) {
+        String account = null;
+        try (JsonParser json = JSON_FACTORY.createParser(body)) {
+            if (json.nextToken() != JsonToken.START_OBJECT) return null;
+            while (json.nextToken() == JsonToken.FIELD_NAME) {
+                String field = json.currentName();
+                if (json.nextToken() == JsonToken.VALUE_STRING && ACCOUNT_FIELD.equals(field)) {
+                    account = json.getText().trim().toLowerCase(Locale.ROOT);
+                } else {
+                    json.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            // malformed JSON: let the controller reject it
+            return null;
         }
+        return account == null || account.isEmpty() ? null : account;
+    }
 
-        synchronized int getAvailableTokens() {
-            refillIfNeeded();
-            return (int) Math.floor(availableTokens);
-        }
+    /**
+     * Accounts share the 128-bit key space with client addresses; the rule id keeps them apart.
+     */
+    static ClientAddress accountKey(String account) {
+        ByteBuffer digest = ByteBuffer.wrap(TokenHashes.sha256(account));
+        return new ClientAddress(digest.getLong(), digest.getLong());
     }
 }
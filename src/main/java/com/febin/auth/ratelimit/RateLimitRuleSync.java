@@ -0,0 +1,113 @@
+package com.febin.auth.ratelimit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.febin.auth.config.RateLimitProperties;
+import com.febin.auth.entity.RateLimitRuleSet;
+import com.febin.auth.repository.RateLimitRuleSetRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the rate-limit rules of every instance in step.
+ * <p>
+ * A change made through the admin API is stored as a new row of {@code rate_limit_rules} and applied
+ * here at once; the other instances pick it up on their next poll
+ * ({@code app.rate-limit.rules-poll-interval-ms}), so a tightened limit holds on every replica within
+ * one interval and survives restarts. Clearing the rules stores an empty row, which sends every
+ * instance back to the application properties.
+ */
+@Component
+public class RateLimitRuleSync {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitRuleSync.class);
+
+    private final RateLimitFilter rateLimitFilter;
+    private final RateLimitRuleSetRepository ruleSetRepository;
+    private final ObjectMapper objectMapper;
+    private final RateLimitProperties defaults;
+
+    // id of the rule set in force on this instance; 0 = the application properties
+    private long appliedVersion;
+    private boolean pollFailing;
+
+    public RateLimitRuleSync(RateLimitFilter rateLimitFilter, RateLimitRuleSetRepository ruleSetRepository,
+                             ObjectMapper objectMapper, RateLimitProperties defaults) {
+        this.rateLimitFilter = rateLimitFilter;
+        this.ruleSetRepository = ruleSetRepository;
+        this.objectMapper = objectMapper;
+        this.defaults = defaults;
+    }
+
+    /**
+     * Validate {@code properties}, store them as the new version and apply them here.
+     *
+     * @throws IllegalArgumentException if a pattern or whitelist entry is invalid; nothing is stored
+     */
+    public synchronized Map<String, Object> publish(RateLimitProperties properties, Long userId) {
+        rateLimitFilter.check(properties);
+        return store(properties, toJson(properties), userId);
+    }
+
+    /**
+     * Send every instance back to the application properties.
+     */
+    public synchronized Map<String, Object> reset(Long userId) {
+        return store(defaults, null, userId);
+    }
+
+    public synchronized long getAppliedVersion() {
+        return appliedVersion;
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.rules-poll-interval-ms:10000}")
+    public synchronized void poll() {
+        RateLimitRuleSet latest;
+        try {
+            latest = ruleSetRepository.findTopByOrderByIdDesc().orElse(null);
+        } catch (RuntimeException e) {
+            if (!pollFailing) logger.warn("Cannot read published rate-limit rules: {}", e.getMessage());
+            pollFailing = true;
+            return;
+        }
+        pollFailing = false;
+        if (latest == null || latest.getId() <= appliedVersion) return;
+        try {
+            RateLimitProperties properties = latest.getConfig() == null ? defaults
+                    : objectMapper.readValue(latest.getConfig(), RateLimitProperties.class);
+            rateLimitFilter.reload(properties);
+            logger.info("Applied rate-limit rules version {}", latest.getId());
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            // not retried: the same row would fail the same way; the previous rules stay active
+            logger.error("Rate-limit rules version {} cannot be applied: {}", latest.getId(), e.getMessage());
+        }
+        appliedVersion = latest.getId();
+    }
+
+    private Map<String, Object> store(RateLimitProperties properties, String config, Long userId) {
+        RateLimitRuleSet ruleSet = new RateLimitRuleSet();
+        ruleSet.setConfig(config);
+        ruleSet.setCreatedBy(userId);
+        ruleSet = ruleSetRepository.save(ruleSet);
+        RateLimitRules rules = rateLimitFilter.reload(properties);
+        appliedVersion = ruleSet.getId();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("version", appliedVersion);
+        result.put("compiled", rules.describe());
+        return result;
+    }
+
+    private String toJson(RateLimitProperties properties) {
+        try {
+            return objectMapper.writeValueAsString(properties);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Rate-limit rules cannot be serialized: " + e.getOriginalMessage(), e);
+        }
+    }
+}
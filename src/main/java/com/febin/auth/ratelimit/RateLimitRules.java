@@ -0,0 +1,193 @@
+package com.febin.auth.ratelimit;
+
+import com.febin.auth.config.RateLimitProperties;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, compiled snapshot of {@link RateLimitProperties}: endpoint and exempt patterns in
+ * a {@link PathTrie}, whitelisted ranges as {@link CidrBlock}s.
+ * <p>
+ * The default limit is applied per route: every request mapping of the application gets its own
+ * default bucket, so heavy use of one endpoint does not throttle the others, and paths that match
+ * no route (they end in a 404) share one more. Routes come from the handler mappings, so the
+ * number of buckets per client stays bounded whatever paths are requested.
+ * <p>
+ * Bucket ids come from a {@link RuleIds} registry that outlives the table, so buckets survive a
+ * reload that only changes the numbers.
+ */
+public final class RateLimitRules {
+
+    private static final String DEFAULT_PATTERN = "default";
+    private static final String DEFAULT_ROUTE_PREFIX = "default:";
+    private static final String ACCOUNT_PATTERN = "per-account-login";
+    // marks exempt patterns in the trie
+    private static final Rule EXEMPT = new Rule("exempt", 0, null);
+
+    private final RateLimitProperties source;
+    private final PathTrie<Rule> routes = new PathTrie<>();
+    private final List<Rule> rules = new ArrayList<>();
+    private final List<String> exempt = new ArrayList<>();
+    private final PathTrie<Rule> defaultRoutes = new PathTrie<>();
+    private final int defaultRouteCount;
+    private final Rule defaultRule;
+    private final Rule accountRule;
+    private final List<CidrBlock> whitelist = new ArrayList<>();
+
+    private RateLimitRules(RateLimitProperties source, Collection<String> appRoutes, RuleIds ids) {
+        this.source = source;
+        if (source.getEndpoints() != null) {
+            source.getEndpoints().forEach((pattern, config) -> {
+                requirePath(pattern);
+                Rule rule = Rule.of(pattern, config, ids);
+                routes.add(pattern, rule);
+                rules.add(rule);
+            });
+        }
+        if (source.getExempt() != null) {
+            for (String pattern : source.getExempt()) {
+                if (pattern == null || pattern.isBlank()) continue;
+                requirePath(pattern);
+                routes.add(pattern, EXEMPT);
+                exempt.add(pattern);
+            }
+        }
+        // a default capacity of 0 leaves unmatched paths unlimited
+        RateLimitProperties.EndpointConfig defaults = source.getDefault();
+        boolean limitDefault = defaults != null && defaults.getCapacity() > 0;
+        this.defaultRule = limitDefault ? Rule.of(DEFAULT_PATTERN, defaults, ids) : null;
+        int count = 0;
+        if (limitDefault) {
+            for (String route : appRoutes) {
+                defaultRoutes.add(route, Rule.of(DEFAULT_ROUTE_PREFIX + route, defaults, ids));
+                count++;
+            }
+        }
+        this.defaultRouteCount = count;
+        RateLimitProperties.EndpointConfig perAccount = source.getPerAccount();
+        this.accountRule = source.isUsePerAccountForLogin() && perAccount != null && perAccount.getCapacity() > 0
+                ? Rule.of(ACCOUNT_PATTERN, perAccount, ids) : null;
+        if (source.getWhitelistIps() != null) {
+            for (String entry : source.getWhitelistIps()) {
+                if (entry != null && !entry.isBlank()) whitelist.add(CidrBlock.parse(entry));
+            }
+        }
+    }
+
+    /**
+     * @param appRoutes the application's routes as trie patterns (see {@link #routePattern(String)}), each distinct
+     * @throws IllegalArgumentException if a pattern or whitelist entry is invalid
+     */
+    static RateLimitRules compile(RateLimitProperties properties, Collection<String> appRoutes, RuleIds ids) {
+        return new RateLimitRules(properties, appRoutes, ids);
+    }
+
+    /**
+     * A request-mapping pattern such as {@code /api/users/{id}} or {@code /files/{*path}} as a trie
+     * pattern ({@code /api/users/*}, {@code /files/**}). Segments with a variable or wildcard inside
+     * literal text become {@code *}.
+     */
+    static String routePattern(String mappingPattern) {
+        StringBuilder route = new StringBuilder();
+        for (String segment : mappingPattern.split("/")) {
+            if (segment.isEmpty()) continue;
+            route.append('/');
+            if (segment.equals("**") || segment.startsWith("{*")) {
+                route.append("**");
+            } else if (segment.indexOf('{') >= 0 || segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+                route.append('*');
+            } else {
+                route.append(segment);
+            }
+        }
+        return route.isEmpty() ? "/" : route.toString();
+    }
+
+    private static void requirePath(String pattern) {
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Rate-limit pattern must start with '/': " + pattern);
+        }
+    }
+
+    public boolean isEnabled() {
+        return source.isEnabled();
+    }
+
+    public boolean isPerAccountForLogin() {
+        return source.isUsePerAccountForLogin();
+    }
+
+    /**
+     * The per-account login limit, or null if login attempts are only limited per IP.
+     */
+    public Rule getAccountRule() {
+        return accountRule;
+    }
+
+    public RateLimitProperties getSource() {
+        return source;
+    }
+
+    /**
+     * The rule for {@code path}: the most specific endpoint pattern, else the default for the
+     * route, else the shared default; null if the path is exempt or unlimited.
+     */
+    public Rule match(String path) {
+        Rule rule = routes.match(path);
+        if (rule == EXEMPT) return null;
+        if (rule != null || defaultRule == null) return rule;
+        Rule route = defaultRoutes.match(path);
+        return route != null ? route : defaultRule;
+    }
+
+    public boolean isWhitelisted(ClientAddress client) {
+        for (CidrBlock block : whitelist) {
+            if (block.contains(client)) return true;
+        }
+        return false;
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("enabled", isEnabled());
+        description.put("usePerAccountForLogin", isPerAccountForLogin());
+        if (accountRule != null) description.put("perAccount", accountRule.describe());
+        description.put("endpoints", rules.stream().map(Rule::describe).toList());
+        description.put("exempt", exempt);
+        if (defaultRule != null) {
+            Map<String, Object> defaults = defaultRule.describe();
+            defaults.put("routes", defaultRouteCount);
+            description.put("default", defaults);
+        } else {
+            description.put("default", "unlimited");
+        }
+        description.put("whitelist", whitelist.stream().map(CidrBlock::toString).toList());
+        return description;
+    }
+
+    // ------------ Helper classes ------------
+
+    /**
+     * @param pattern what the rule applies to; also the bucket key in shared stores, identical on every instance
+     * @param id      this process's bucket id for the pattern (>= 1)
+     */
+    public record Rule(String pattern, int id, TokenBucket.Limit limit) {
+
+        static Rule of(String pattern, RateLimitProperties.EndpointConfig config, RuleIds ids) {
+            return new Rule(pattern, ids.idOf(pattern),
+                    TokenBucket.Limit.of(config.getCapacity(), config.getRefillTokens(), config.getRefillPeriodSeconds()));
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> description = new LinkedHashMap<>();
+            description.put("pattern", pattern);
+            description.put("capacity", limit.capacity());
+            description.put("emissionIntervalMs", limit.intervalNanos() / 1_000_000.0);
+            return description;
+        }
+    }
+}
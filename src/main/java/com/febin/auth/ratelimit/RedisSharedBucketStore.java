@@ -0,0 +1,71 @@
+package com.febin.auth.ratelimit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared buckets in Redis ({@code app.rate-limit.backend=redis}, server from {@code redis.uri}).
+ * <p>
+ * Each bucket is one key holding its TAT in microseconds on the Redis server clock, so instances
+ * with skewed clocks still agree. A Lua script reads the TAT, grants as many of the requested
+ * tokens as the bucket allows (after crediting returned ones) and writes the new TAT back
+ * atomically; the key expires once the bucket would be full again, so idle clients cost no memory.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.backend", havingValue = "redis")
+public class RedisSharedBucketStore implements SharedBucketStore {
+
+    static final String KEY_PREFIX = "rl:";
+
+    // KEYS[1] bucket; ARGV[1] tokens wanted, ARGV[2] capacity, ARGV[3] emission interval (µs),
+    // ARGV[4] tokens returned. Returns {granted or -µs to wait, tokens left}
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ACQUIRE = new DefaultRedisScript<>("""
+            local t = redis.call('TIME')
+            local now = tonumber(t[1]) * 1000000 + tonumber(t[2])
+            local interval = tonumber(ARGV[3])
+            local tolerance = tonumber(ARGV[2]) * interval
+            local tat = tonumber(redis.call('GET', KEYS[1]) or now) - tonumber(ARGV[4]) * interval
+            if tat < now then tat = now end
+            local available = math.floor((tolerance - (tat - now)) / interval)
+            if available <= 0 then
+                return {-(tat - now + interval - tolerance), 0}
+            end
+            local granted = math.min(tonumber(ARGV[1]), available)
+            tat = tat + granted * interval
+            redis.call('SET', KEYS[1], string.format('%.0f', tat),
+                    'PX', string.format('%.0f', math.ceil((tat - now) / 1000) + 1))
+            return {granted, available - granted}
+            """, List.class);
+
+    private final StringRedisTemplate redis;
+
+    public RedisSharedBucketStore(StringRedisTemplate redis) {
+        this.redis = redis;
+    }
+
+    @Override
+    public Grant acquire(String key, long tokens, long returned, TokenBucket.Limit limit) {
+        // microseconds keep capacity * interval exact in Lua's doubles
+        long intervalMicros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(limit.intervalNanos()));
+        List<?> result = redis.execute(ACQUIRE, List.of(KEY_PREFIX + key), String.valueOf(tokens),
+                String.valueOf(limit.capacity()), String.valueOf(intervalMicros), String.valueOf(returned));
+        if (result == null || result.size() != 2) {
+            throw new IllegalStateException("Rate-limit script returned no result");
+        }
+        long granted = ((Number) result.get(0)).longValue();
+        long remaining = ((Number) result.get(1)).longValue();
+        return new Grant(granted > 0 ? granted : TimeUnit.MICROSECONDS.toNanos(granted), remaining);
+    }
+
+    @Override
+    public String name() {
+        return "redis";
+    }
+}
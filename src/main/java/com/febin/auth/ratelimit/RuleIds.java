@@ -0,0 +1,23 @@
+package com.febin.auth.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sequential bucket ids for rule keys, handed out once per process and never reused, so a reload
+ * that keeps a pattern keeps its buckets and two patterns never share one.
+ * <p>
+ * Ids are local: they differ between instances, which is why shared stores key buckets by the
+ * rule's pattern instead.
+ */
+final class RuleIds {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    // 0 is reserved for free slots in BucketStore
+    private final AtomicInteger next = new AtomicInteger(1);
+
+    int idOf(String key) {
+        return ids.computeIfAbsent(key, k -> next.getAndIncrement());
+    }
+}
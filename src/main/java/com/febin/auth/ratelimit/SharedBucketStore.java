@@ -0,0 +1,31 @@
+package com.febin.auth.ratelimit;
+
+/**
+ * Bucket state shared by every instance, used by {@link LeasingRateLimitBackend}.
+ * <p>
+ * Buckets follow the same GCRA rules as {@link TokenBucket}, but tokens are taken in batches:
+ * one call may hand out several tokens at once, which the calling node then spends locally, and
+ * may hand back tokens of an earlier batch that the node did not spend.
+ */
+public interface SharedBucketStore {
+
+    /**
+     * Put {@code returned} unspent tokens back into the bucket {@code key} (never beyond its
+     * capacity), then take up to {@code tokens} tokens from it.
+     *
+     * @throws RuntimeException if the store cannot be reached
+     */
+    Grant acquire(String key, long tokens, long returned, TokenBucket.Limit limit);
+
+    /**
+     * Short name for the admin metrics.
+     */
+    String name();
+
+    /**
+     * @param granted   the number of tokens granted (>= 1), or minus the nanoseconds until one is available
+     * @param remaining tokens left in the shared bucket after the grant
+     */
+    record Grant(long granted, long remaining) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.febin.auth.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket arithmetic shared by the bucket stores.
+ * <p>
+ * Implemented as GCRA: instead of a token count and a refill timestamp, the whole state of a bucket
+ * is one long, the "theoretical arrival time" (TAT) of the next request on the {@link #now()} clock.
+ * Each accepted request pushes the TAT one emission interval ({@code refillPeriod / refillTokens})
+ * further; a request is rejected when that would put the TAT more than {@code capacity} intervals
+ * ahead of now. This is a token bucket refilled continuously rather than in steps, and a store can
+ * update it with a single CAS and integer math, without allocating.
+ * <p>
+ * Taking a token reports the tokens left (>= 0) if the request is allowed, otherwise minus the
+ * nanoseconds until a token is available.
+ */
+public final class TokenBucket {
+
+    // all times are relative to this, so they stay positive and a fresh state of 0 means "full"
+    private static final long ORIGIN = System.nanoTime();
+
+    private TokenBucket() {
+    }
+
+    /**
+     * Current time on the bucket clock.
+     */
+    static long now() {
+        return System.nanoTime() - ORIGIN;
+    }
+
+    /**
+     * Convert a rejection (minus the nanoseconds to wait) into whole seconds to wait (at least 1).
+     */
+    public static long retryAfterSeconds(long rejection) {
+        return Math.max(1, (-rejection + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Bucket parameters: burst size and the time it takes to earn one token back.
+     */
+    public record Limit(long capacity, long intervalNanos) {
+
+        public Limit {
+            if (capacity < 1) capacity = 1;
+            if (intervalNanos < 1) intervalNanos = 1;
+            // keep capacity * interval well inside a long
+            intervalNanos = Math.min(intervalNanos, Long.MAX_VALUE / 4 / capacity);
+        }
+
+        /**
+         * {@code refillTokens} per {@code refillPeriodSeconds}; 0 refill tokens means the bucket never refills.
+         */
+        public static Limit of(long capacity, long refillTokens, long refillPeriodSeconds) {
+            long periodNanos = TimeUnit.SECONDS.toNanos(Math.max(1, refillPeriodSeconds));
+            return new Limit(capacity, refillTokens <= 0 ? Long.MAX_VALUE : periodNanos / refillTokens);
+        }
+
+        long toleranceNanos() {
+            return capacity * intervalNanos;
+        }
+
+        /**
+         * How far ahead of {@code now} the TAT would be after taking one more token.
+         */
+        long aheadAfterConsume(long tat, long now) {
+            return Math.max(tat, now) - now + intervalNanos;
+        }
+
+        long remaining(long ahead) {
+            return (toleranceNanos() - ahead) / intervalNanos;
+        }
+    }
+}
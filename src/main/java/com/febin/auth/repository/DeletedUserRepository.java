@@ -0,0 +1,23 @@
+package com.febin.auth.repository;
+
+import com.febin.auth.entity.DeletedUser;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface DeletedUserRepository extends JpaRepository<DeletedUser, Long> {
+
+    @Query("SELECT d.userId AS id, d.tokenVersion AS tokenVersion, d.deletedAt AS tokensRevokedAt " +
+            "FROM DeletedUser d WHERE d.deletedAt >= :since")
+    List<UserRepository.TokenVersionView> findTokenVersionsDeletedSince(@Param("since") Instant since);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM DeletedUser d WHERE d.deletedAt < :cutoff")
+    int deleteDeletedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,10 @@
+package com.febin.auth.repository;
+
+import com.febin.auth.entity.RateLimitRuleSet;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface RateLimitRuleSetRepository extends JpaRepository<RateLimitRuleSet, Long> {
+    Optional<RateLimitRuleSet> findTopByOrderByIdDesc();
+}
@@ -1,14 +1,110 @@
 package com.febin.auth.repository;
 
 import com.febin.auth.entity.RefreshToken;
-import com.febin.auth.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
-    Optional<RefreshToken> findByToken(String token);
-    List<RefreshToken> findByUser(User user);
-    void deleteByUser(User user);
+    Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
+
+    @Query("SELECT r FROM RefreshToken r JOIN FETCH r.user WHERE r.tokenHash = :tokenHash")
+    Optional<RefreshToken> findWithUserByTokenHash(@Param("tokenHash") byte[] tokenHash);
+
+    /**
+     * Consume a token: succeeds (returns 1) only for a live, not yet rotated token,
+     * so of two concurrent refreshes with the same token exactly one wins.
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true " +
+            "WHERE r.tokenHash = :tokenHash AND r.revoked = false AND r.expiryDate > :now")
+    int rotate(@Param("tokenHash") byte[] tokenHash, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.familyId = :familyId AND r.revoked = false")
+    int revokeFamily(@Param("familyId") byte[] familyId);
+    /**
+     * A user's live tokens (one per session), newest first, strictly below {@code beforeId}
+     * (keyset paging over idx_refresh_tokens_user_revoked_expiry).
+     */
+    @Query("SELECT r FROM RefreshToken r WHERE r.user.id = :userId AND r.revoked = false " +
+            "AND r.expiryDate > :now AND r.id < :beforeId ORDER BY r.id DESC")
+    List<RefreshToken> findActiveByUserId(@Param("userId") Long userId, @Param("now") Instant now,
+                                          @Param("beforeId") Long beforeId, Limit limit);
+
+    long countByUserIdAndRevokedFalseAndExpiryDateAfter(Long userId, Instant now);
+
+    @Query("SELECT r.familyId FROM RefreshToken r WHERE r.user.id = :userId AND r.revoked = false " +
+            "AND r.expiryDate > :now ORDER BY r.id ASC")
+    List<byte[]> findOldestActiveFamilyIds(@Param("userId") Long userId, @Param("now") Instant now, Limit limit);
+
+    @Query("SELECT r FROM RefreshToken r JOIN FETCH r.user WHERE r.familyId = :familyId AND r.user.id = :userId " +
+            "AND r.revoked = false AND r.expiryDate > :now")
+    List<RefreshToken> findActiveByFamilyIdAndUserId(@Param("familyId") byte[] familyId, @Param("userId") Long userId,
+                                                     @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true " +
+            "WHERE r.familyId = :familyId AND r.user.id = :userId AND r.revoked = false")
+    int revokeFamilyOfUser(@Param("familyId") byte[] familyId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.user.id = :userId AND r.revoked = false")
+    int revokeAllByUserId(@Param("userId") Long userId);
+
+    // ---- batched writes of TieredRefreshTokenStore ----
+
+    @Query("SELECT r.tokenHash FROM RefreshToken r WHERE r.tokenHash IN :tokenHashes")
+    List<byte[]> findExistingTokenHashes(@Param("tokenHashes") Collection<byte[]> tokenHashes);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.tokenHash IN :tokenHashes AND r.revoked = false")
+    int revokeByTokenHashes(@Param("tokenHashes") Collection<byte[]> tokenHashes);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.familyId IN :familyIds AND r.revoked = false")
+    int revokeFamilies(@Param("familyIds") Collection<byte[]> familyIds);
+
+    /**
+     * Like {@link #revokeAllByUserId(Long)}, but spares tokens issued after {@code at}
+     * (a write-behind flush may apply the revocation after a later login was stored).
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true " +
+            "WHERE r.user.id = :userId AND r.revoked = false AND r.createdAt <= :at")
+    int revokeAllByUserIdCreatedBefore(@Param("userId") Long userId, @Param("at") Instant at);
+
+    /**
+     * Delete at most {@code limit} tokens that expired before {@code cutoff} (walks idx_refresh_tokens_expiry_date).
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE expiry_date < :cutoff ORDER BY expiry_date LIMIT :limit",
+            nativeQuery = true)
+    int deleteExpiredBatch(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    /**
+     * Up to {@code limit} revoked tokens created before {@code cutoff} whose family has no live token left
+     * (walks idx_refresh_tokens_revoked_created_at). A rotated token of a live family is kept until it
+     * expires: replaying it must still find the row to revoke the family.
+     */
+    @Query(value = "SELECT r.id FROM refresh_tokens r WHERE r.revoked = true AND r.created_at < :cutoff "
+            + "AND NOT EXISTS (SELECT 1 FROM refresh_tokens l WHERE l.family_id = r.family_id "
+            + "AND l.revoked = false AND l.expiry_date > :now) ORDER BY r.created_at LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findPurgeableRevokedIds(@Param("cutoff") Instant cutoff, @Param("now") Instant now,
+                                       @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.id IN :ids AND r.revoked = true")
+    int deleteRevokedByIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,53 @@
+package com.febin.auth.repository;
+
+import com.febin.auth.entity.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Lease updates are single conditional statements evaluated against the database clock
+ * ({@code NOW(3)}), so clock skew between nodes cannot make two of them hold the same lease.
+ */
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO scheduler_leases (job_name, lease_until, fencing_token) VALUES (:jobName, NOW(3), 0)",
+            nativeQuery = true)
+    int createIfAbsent(@Param("jobName") String jobName);
+
+    /**
+     * Take the lease if it is free or has expired; returns 1 on success.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE scheduler_leases SET owner = :owner, fencing_token = fencing_token + 1, "
+            + "acquired_at = NOW(3), heartbeat_at = NOW(3), "
+            + "lease_until = NOW(3) + INTERVAL :leaseMs * 1000 MICROSECOND "
+            + "WHERE job_name = :jobName AND (owner IS NULL OR lease_until < NOW(3))",
+            nativeQuery = true)
+    int acquire(@Param("jobName") String jobName, @Param("owner") String owner, @Param("leaseMs") long leaseMs);
+
+    /**
+     * Extend a lease this node still holds (nobody took it over since {@code fencingToken}).
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE scheduler_leases SET heartbeat_at = NOW(3), "
+            + "lease_until = NOW(3) + INTERVAL :leaseMs * 1000 MICROSECOND "
+            + "WHERE job_name = :jobName AND owner = :owner AND fencing_token = :fencingToken",
+            nativeQuery = true)
+    int renew(@Param("jobName") String jobName, @Param("owner") String owner,
+              @Param("fencingToken") long fencingToken, @Param("leaseMs") long leaseMs);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE scheduler_leases SET owner = NULL, lease_until = NOW(3) "
+            + "WHERE job_name = :jobName AND owner = :owner AND fencing_token = :fencingToken",
+            nativeQuery = true)
+    int release(@Param("jobName") String jobName, @Param("owner") String owner,
+                @Param("fencingToken") long fencingToken);
+}
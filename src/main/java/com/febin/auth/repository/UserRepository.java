@@ -2,7 +2,11 @@ package com.febin.auth.repository;
 
 import com.febin.auth.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -12,4 +16,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByVerificationCode(String code);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+
+    @Query("SELECT u.id AS id, u.tokenVersion AS tokenVersion, u.tokensRevokedAt AS tokensRevokedAt " +
+            "FROM User u WHERE u.tokensRevokedAt >= :since")
+    List<TokenVersionView> findTokenVersionsRevokedSince(@Param("since") Instant since);
+
+    interface TokenVersionView {
+        Long getId();
+        int getTokenVersion();
+        Instant getTokensRevokedAt();
+    }
 }
@@ -0,0 +1,76 @@
+package com.febin.auth.security;
+
+import com.febin.auth.config.JwtProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory denylist of revoked access tokens, keyed by their {@code jti}.
+ * <p>
+ * A {@link BloomFilter} sits in front of the map, so for the overwhelming majority of
+ * requests (tokens that were never revoked) {@link #isRevoked(String)} is answered by a
+ * handful of bit probes without touching the map. Entries are kept only until the token
+ * would have expired anyway; the periodic purge drops them and rebuilds the filter.
+ * <p>
+ * Revocations go through the {@link DenylistStore} so they can be replicated to other instances.
+ */
+@Component
+public class AccessTokenDenylist {
+
+    private final DenylistStore store;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+
+    private final Map<String, Long> entries = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+
+    public AccessTokenDenylist(DenylistStore store, JwtProperties jwtProperties) {
+        this.store = store;
+        this.expectedEntries = jwtProperties.getDenylist().getExpectedEntries();
+        this.falsePositiveRate = jwtProperties.getDenylist().getFalsePositiveRate();
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+
+        store.snapshot().forEach(this::apply);
+        store.subscribe(this::apply);
+    }
+
+    /**
+     * Revoke the token with the given id until it expires.
+     */
+    public void revoke(String tokenId, long expiresAtMs) {
+        if (tokenId == null || expiresAtMs <= System.currentTimeMillis()) return;
+        store.publish(tokenId, expiresAtMs);
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId)) return false;
+        Long expiresAtMs = entries.get(tokenId);
+        return expiresAtMs != null && expiresAtMs > System.currentTimeMillis();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drop entries whose tokens have expired and rebuild the filter from what is left.
+     */
+    @Scheduled(fixedDelayString = "${jwt.denylist.purge-interval-ms:60000}")
+    public synchronized void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(expiresAtMs -> expiresAtMs <= now);
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, entries.size() * 2), falsePositiveRate);
+        entries.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+    }
+
+    // synchronized with purgeExpired so an entry is never lost while the filter is being swapped
+    private synchronized void apply(String tokenId, Long expiresAtMs) {
+        if (expiresAtMs == null || expiresAtMs <= System.currentTimeMillis()) return;
+        entries.merge(tokenId, expiresAtMs, Math::max);
+        filter.add(tokenId);
+    }
+}
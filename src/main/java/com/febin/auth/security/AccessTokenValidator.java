@@ -0,0 +1,85 @@
+package com.febin.auth.security;
+
+import com.febin.auth.exception.TokenValidationException;
+import com.febin.auth.security.TokenValidationResult.Status;
+import com.febin.auth.util.AccessTokenClaims;
+import com.febin.auth.util.JwtUtil;
+import com.febin.auth.util.RoleTable;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Full access-token check shared by {@link JwtAuthenticationFilter} and the introspection endpoint.
+ * <p>
+ * Single pass: the token is decoded and its signature verified at most once (and not at all when
+ * it is in {@link VerifiedTokenCache}), then checked against the jti denylist and the per-user
+ * token version. Needs no database access. Every outcome is counted per {@link Status}.
+ */
+@Component
+public class AccessTokenValidator {
+
+    private final JwtUtil jwtUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final AccessTokenDenylist accessTokenDenylist;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final RoleTable roleTable;
+    private final Map<Status, LongAdder> counters = new EnumMap<>(Status.class);
+
+    public AccessTokenValidator(JwtUtil jwtUtil, VerifiedTokenCache verifiedTokenCache,
+                                AccessTokenDenylist accessTokenDenylist, TokenVersionRegistry tokenVersionRegistry,
+                                RoleTable roleTable) {
+        this.jwtUtil = jwtUtil;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.accessTokenDenylist = accessTokenDenylist;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.roleTable = roleTable;
+        // filled once up front, so concurrent readers never see the map change
+        for (Status status : Status.values()) {
+            counters.put(status, new LongAdder());
+        }
+    }
+
+    public TokenValidationResult validate(String token) {
+        TokenValidationResult result = check(token);
+        counters.get(result.status()).increment();
+        return result;
+    }
+
+    /**
+     * Number of validations per outcome since startup.
+     */
+    public Map<Status, Long> getCounts() {
+        Map<Status, Long> counts = new EnumMap<>(Status.class);
+        counters.forEach((status, counter) -> counts.put(status, counter.sum()));
+        return counts;
+    }
+
+    private TokenValidationResult check(String token) {
+        if (token == null || token.isBlank()) {
+            return TokenValidationResult.invalid(Status.MALFORMED);
+        }
+        AccessTokenClaims claims = verifiedTokenCache.get(token);
+        if (claims == null) {
+            try {
+                // parseAccessToken verifies the signature and rejects expired tokens
+                claims = jwtUtil.parseAccessToken(token);
+            } catch (TokenValidationException e) {
+                return TokenValidationResult.invalid(Status.of(e.getReason()));
+            }
+            // compact tokens carry a role bitmask; resolve the names once, before caching
+            if (claims.roles() == null && claims.roleMask() != null) {
+                claims = claims.withRoles(roleTable.toNames(claims.roleMask()));
+            }
+            verifiedTokenCache.put(token, claims);
+        }
+        // Revoked tokens (logout, or all of a user's tokens after a password change)
+        if (accessTokenDenylist.isRevoked(claims.tokenId())
+                || !tokenVersionRegistry.isCurrent(claims.id(), claims.tokenVersion())) {
+            return TokenValidationResult.invalid(Status.REVOKED);
+        }
+        return TokenValidationResult.valid(claims);
+    }
+}
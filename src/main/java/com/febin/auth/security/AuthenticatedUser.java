@@ -0,0 +1,57 @@
+package com.febin.auth.security;
+
+import com.febin.auth.entity.Role;
+import com.febin.auth.entity.User;
+import com.febin.auth.util.AccessTokenClaims;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Lightweight, immutable principal placed in the SecurityContext by {@link JwtAuthenticationFilter}.
+ * <p>
+ * It carries only what the access token carries (id, username, email, role names), so
+ * controllers can work with the current user without holding a JPA entity.
+ */
+public record AuthenticatedUser(Long id, String username, String email, Set<String> roles)
+        implements AuthenticatedPrincipal {
+
+    public static final String ROLE_ADMIN = "ROLE_ADMIN";
+
+    public AuthenticatedUser {
+        roles = roles == null ? Set.of() : Set.copyOf(roles);
+    }
+
+    public static AuthenticatedUser from(User user) {
+        Set<String> roleNames = user.getRoles() == null ? Set.of()
+                : user.getRoles().stream().map(Role::getName).collect(Collectors.toSet());
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getEmail(), roleNames);
+    }
+
+    /**
+     * Build the principal straight from verified access-token claims
+     * (see {@code JwtUtil.generateAccessToken(User)} for the claim set).
+     */
+    public static AuthenticatedUser from(AccessTokenClaims claims) {
+        String username = claims.username() != null ? claims.username() : claims.subject();
+        Set<String> roleNames = claims.roles() == null ? Set.of() : Set.copyOf(claims.roles());
+        return new AuthenticatedUser(claims.id(), username, claims.email(), roleNames);
+    }
+
+    public boolean hasRole(String role) {
+        return roles.contains(role);
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return roles.stream().map(SimpleGrantedAuthority::new).collect(Collectors.toSet());
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -0,0 +1,30 @@
+package com.febin.auth.security;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Replication channel for the {@link AccessTokenDenylist}.
+ * <p>
+ * Revocations are published here rather than applied directly, and every subscribed
+ * instance (including the publishing one) receives them. The default
+ * {@link InMemoryDenylistStore} only reaches the local instance; to share revocations
+ * across replicas, declare a {@code @Primary} implementation backed by a shared store.
+ */
+public interface DenylistStore {
+
+    /**
+     * Publish a revoked token id, to be remembered until {@code expiresAtMs}.
+     */
+    void publish(String tokenId, long expiresAtMs);
+
+    /**
+     * Register a listener for revocations published by any instance.
+     */
+    void subscribe(BiConsumer<String, Long> listener);
+
+    /**
+     * Currently known revocations (token id to expiry), used to warm up a starting instance.
+     */
+    Map<String, Long> snapshot();
+}
@@ -0,0 +1,35 @@
+package com.febin.auth.security;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Single-instance {@link DenylistStore}: publications are delivered straight to local subscribers.
+ */
+@Component
+public class InMemoryDenylistStore implements DenylistStore {
+
+    private final List<BiConsumer<String, Long>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String tokenId, long expiresAtMs) {
+        for (BiConsumer<String, Long> listener : listeners) {
+            listener.accept(tokenId, expiresAtMs);
+        }
+    }
+
+    @Override
+    public void subscribe(BiConsumer<String, Long> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public Map<String, Long> snapshot() {
+        // nothing outlives this instance, so there is nothing to warm up from
+        return Map.of();
+    }
+}
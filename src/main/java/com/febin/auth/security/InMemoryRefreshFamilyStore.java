@@ -0,0 +1,65 @@
+package com.febin.auth.security;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-instance {@link RefreshFamilyStore}. Families are dropped once their newest token has expired.
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.refresh.family-store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRefreshFamilyStore implements RefreshFamilyStore {
+
+    private record Family(int nextSequence, boolean revoked, long expiresAtMs) {
+    }
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    @Override
+    public void register(String familyId, long expiresAtMs) {
+        families.put(familyId, new Family(0, false, expiresAtMs));
+    }
+
+    @Override
+    public Outcome advance(String familyId, int sequence, long newExpiresAtMs) {
+        Outcome[] outcome = new Outcome[1];
+        families.compute(familyId, (id, family) -> {
+            // unknown (e.g. issued before a restart) or expired: never adopt
+            if (family == null || family.expiresAtMs() <= System.currentTimeMillis()) {
+                outcome[0] = Outcome.REVOKED;
+                return family;
+            }
+            if (family.revoked()) {
+                outcome[0] = Outcome.REVOKED;
+                return family;
+            }
+            if (family.nextSequence() != sequence) {
+                outcome[0] = Outcome.REUSED;
+                return new Family(family.nextSequence(), true, family.expiresAtMs());
+            }
+            outcome[0] = Outcome.ACCEPTED;
+            return new Family(sequence + 1, false, newExpiresAtMs);
+        });
+        return outcome[0];
+    }
+
+    @Override
+    public void revoke(String familyId, long expiresAtMs) {
+        families.merge(familyId, new Family(0, true, expiresAtMs),
+                (old, revoked) -> new Family(old.nextSequence(), true, Math.max(old.expiresAtMs(), expiresAtMs)));
+    }
+
+    public int size() {
+        return families.size();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.family-purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        families.values().removeIf(family -> family.expiresAtMs() <= now);
+    }
+}
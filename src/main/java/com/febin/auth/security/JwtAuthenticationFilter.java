@@ -1,8 +1,8 @@
 package com.febin.auth.security;
 
-import com.febin.auth.util.JwtUtil;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
+import com.febin.auth.config.JwtProperties;
+import com.febin.auth.entity.User;
+import com.febin.auth.util.AccessTokenClaims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -13,6 +13,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -22,48 +23,77 @@ import java.util.Optional;
 
 /**
  * Simple filter that extracts JWT access token from cookie named "ATK",
- * validates it with JwtUtil, and sets Authentication in SecurityContext.
+ * validates it with {@link AccessTokenValidator} (cached signature check, denylist,
+ * token version), and sets Authentication in SecurityContext.
+ * <p>
+ * The principal is always an {@link AuthenticatedUser}. With {@code jwt.claims-only-auth=true}
+ * it is built from the verified claims alone; otherwise the user is reloaded from the database.
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtUtil jwtUtil;
+    private final AccessTokenValidator accessTokenValidator;
     private final UserDetailsService userDetailsService;
+    private final boolean claimsOnlyAuth;
     private final String accessCookieName = "ATK";
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
-        this.jwtUtil = jwtUtil;
+    public JwtAuthenticationFilter(AccessTokenValidator accessTokenValidator, UserDetailsService userDetailsService,
+                                   JwtProperties jwtProperties) {
+        this.accessTokenValidator = accessTokenValidator;
         this.userDetailsService = userDetailsService;
+        this.claimsOnlyAuth = jwtProperties.isClaimsOnlyAuth();
+    }
+
+    /**
+     * Routes that never need an authenticated user: login/refresh/signup and friends,
+     * and the introspection endpoint (which authenticates with its own key).
+     */
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String path = request.getServletPath();
+        return path.startsWith("/api/auth/") || path.startsWith("/api/internal/");
     }
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
                                     @NonNull HttpServletResponse response,
                                     @NonNull FilterChain filterChain) throws ServletException, IOException {
-        try {
-            Optional<Cookie> atkCookie = getCookie(request, accessCookieName);
-            if (atkCookie.isPresent()) {
-                String token = atkCookie.get().getValue();
-                if (token != null && !token.isBlank() && !jwtUtil.isTokenExpired(token)) {
-                    Jws<Claims> parsed = jwtUtil.parseClaims(token);
-                    String username = parsed.getBody().getSubject();
-
-                    // Load the full user details from the database
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                    // Create authentication token with the full UserDetails object
-                    UsernamePasswordAuthenticationToken auth =
-                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                    SecurityContextHolder.getContext().setAuthentication(auth);
-                }
+        Optional<Cookie> atkCookie = getCookie(request, accessCookieName);
+        if (atkCookie.isPresent()) {
+            TokenValidationResult result = accessTokenValidator.validate(atkCookie.get().getValue());
+            if (result.isValid()) {
+                authenticate(result.claims());
+            } else {
+                // Not fatal: the request simply continues unauthenticated
+                logger.debug("Ignoring access token on " + request.getRequestURI() + ": " + result.status());
             }
-        } catch (Exception ex) {
-            // If anything goes wrong, do not set authentication.
         }
 
         filterChain.doFilter(request, response);
     }
 
+    private void authenticate(AccessTokenClaims claims) {
+        AuthenticatedUser principal;
+        try {
+            principal = claimsOnlyAuth ? AuthenticatedUser.from(claims) : loadPrincipal(claims);
+        } catch (UsernameNotFoundException ex) {
+            logger.debug("Access token subject no longer exists: " + claims.subject());
+            return;
+        }
+        UsernamePasswordAuthenticationToken auth =
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        SecurityContextHolder.getContext().setAuthentication(auth);
+    }
+
+    private AuthenticatedUser loadPrincipal(AccessTokenClaims claims) {
+        // Load the user from the database so role and account changes apply immediately
+        UserDetails userDetails = userDetailsService.loadUserByUsername(claims.subject());
+        if (userDetails instanceof User user) {
+            return AuthenticatedUser.from(user);
+        }
+        return AuthenticatedUser.from(claims);
+    }
+
     private Optional<Cookie> getCookie(HttpServletRequest req, String name) {
         if (req.getCookies() == null) return Optional.empty();
         return Arrays.stream(req.getCookies()).filter(c -> c.getName().equals(name)).findFirst();
@@ -0,0 +1,176 @@
+package com.febin.auth.security;
+
+import com.febin.auth.ratelimit.ClientIpResolver;
+import com.febin.auth.util.TokenHashes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Short-lived memory of refresh tokens and one-time codes that were just looked up and not found.
+ * <p>
+ * Bogus values replayed against /api/auth/refresh, /api/auth/verify or the password reset endpoint
+ * are answered from here for {@code app.negative-cache.ttl-ms} instead of costing a query each.
+ * Entries are keyed by the SHA-256 digest of the value, and the number of misses is counted per
+ * client address (resolved like the rate limiter does, see {@link ClientIpResolver}) so enumeration
+ * attempts show up in the admin metrics.
+ * <p>
+ * Codes are short, so a freshly issued one may collide with a cached miss: callers must
+ * {@link #forget(Kind, String)} a value when they hand it out.
+ */
+@Component
+public class NegativeLookupCache {
+
+    public enum Kind {
+        REFRESH_TOKEN, VERIFICATION_CODE, PASSWORD_RESET_CODE
+    }
+
+    private static final String UNKNOWN_SOURCE = "unknown";
+
+    private final boolean enabled;
+    private final long ttlMs;
+    private final int maxEntries;
+    private final int maxSources;
+    private final ClientIpResolver clientIpResolver;
+
+    private final Map<Key, Long> entries = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> missesBySource = new ConcurrentHashMap<>();
+    private final Map<Kind, LongAdder> hits = new EnumMap<>(Kind.class);
+    private final Map<Kind, LongAdder> misses = new EnumMap<>(Kind.class);
+
+    public NegativeLookupCache(@Value("${app.negative-cache.enabled:true}") boolean enabled,
+                               @Value("${app.negative-cache.ttl-ms:30000}") long ttlMs,
+                               @Value("${app.negative-cache.max-entries:100000}") int maxEntries,
+                               @Value("${app.negative-cache.max-sources:10000}") int maxSources,
+                               ClientIpResolver clientIpResolver) {
+        this.enabled = enabled;
+        this.ttlMs = ttlMs;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxSources = Math.max(1, maxSources);
+        this.clientIpResolver = clientIpResolver;
+        for (Kind kind : Kind.values()) {
+            hits.put(kind, new LongAdder());
+            misses.put(kind, new LongAdder());
+        }
+    }
+
+    /**
+     * True if the value was looked up and not found within the last TTL, in which case the
+     * caller can reject it without asking the database.
+     */
+    public boolean isKnownMiss(Kind kind, String value) {
+        if (!enabled || value == null) return false;
+        Key key = Key.of(kind, value);
+        Long expiresAtMs = entries.get(key);
+        if (expiresAtMs == null) return false;
+        if (expiresAtMs <= System.currentTimeMillis()) {
+            entries.remove(key, expiresAtMs);
+            return false;
+        }
+        hits.get(kind).increment();
+        countSource();
+        return true;
+    }
+
+    /**
+     * Remember that the value does not exist.
+     */
+    public void recordMiss(Kind kind, String value) {
+        if (!enabled || value == null) return;
+        misses.get(kind).increment();
+        countSource();
+        if (entries.size() >= maxEntries) {
+            purgeExpired();
+            // still full: skip caching rather than evicting, the next lookup just goes to the database
+            if (entries.size() >= maxEntries) return;
+        }
+        entries.put(Key.of(kind, value), System.currentTimeMillis() + ttlMs);
+    }
+
+    /**
+     * Drop a cached miss for a value that has just been issued.
+     */
+    public void forget(Kind kind, String value) {
+        if (!enabled || value == null) return;
+        entries.remove(Key.of(kind, value));
+    }
+
+    @Scheduled(fixedDelayString = "${app.negative-cache.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Long> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next() <= now) it.remove();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> byKind = new LinkedHashMap<>();
+        for (Kind kind : Kind.values()) {
+            byKind.put(kind.name(), Map.of("hits", hits.get(kind).sum(), "misses", misses.get(kind).sum()));
+        }
+        Map<String, Long> topSources = new LinkedHashMap<>();
+        missesBySource.entrySet().stream()
+                .map(e -> Map.entry(e.getKey(), e.getValue().sum()))
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(20)
+                .forEachOrdered(e -> topSources.put(e.getKey(), e.getValue()));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", entries.size());
+        stats.put("lookups", byKind);
+        stats.put("trackedSources", missesBySource.size());
+        stats.put("topSources", topSources);
+        return stats;
+    }
+
+    /**
+     * Per-source counts only need to stay meaningful over a few minutes; clearing them keeps
+     * a spoofed or rotating source flood from growing the map.
+     */
+    @Scheduled(fixedDelayString = "${app.negative-cache.source-reset-interval-ms:3600000}")
+    public void resetSources() {
+        missesBySource.clear();
+    }
+
+    private void countSource() {
+        String source = currentSource();
+        LongAdder counter = missesBySource.get(source);
+        if (counter == null) {
+            if (missesBySource.size() >= maxSources) source = UNKNOWN_SOURCE;
+            counter = missesBySource.computeIfAbsent(source, s -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    private String currentSource() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) return UNKNOWN_SOURCE;
+        return clientIpResolver.resolveIp(servletAttributes.getRequest());
+    }
+
+    // ------------ Helper classes ------------
+
+    /**
+     * Kind plus the first 128 bits of the value's SHA-256; plenty to tell bogus values apart.
+     */
+    private record Key(Kind kind, long a, long b) {
+        static Key of(Kind kind, String value) {
+            ByteBuffer buf = ByteBuffer.wrap(TokenHashes.sha256(value));
+            return new Key(kind, buf.getLong(), buf.getLong());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.febin.auth.security;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@link RefreshFamilyStore} shared by all instances through Redis ({@code jwt.refresh.family-store=redis},
+ * server from {@code redis.uri}).
+ * <p>
+ * Each family is a small hash (next sequence, revoked flag) that expires with the family's newest
+ * token. The compare-and-advance runs as one Lua script, so two replicas presenting the same token
+ * concurrently cannot both succeed.
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.refresh.family-store", havingValue = "redis")
+public class RedisRefreshFamilyStore implements RefreshFamilyStore {
+
+    private static final String KEY_PREFIX = "rf:";
+
+    // KEYS[1] family; ARGV[1] expiry (epoch ms)
+    private static final RedisScript<Long> REGISTER = new DefaultRedisScript<>("""
+            redis.call('HSET', KEYS[1], 'next', '0', 'revoked', '0')
+            redis.call('PEXPIREAT', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    // KEYS[1] family; ARGV[1] presented sequence, ARGV[2] new expiry (epoch ms)
+    private static final RedisScript<String> ADVANCE = new DefaultRedisScript<>("""
+            local family = redis.call('HMGET', KEYS[1], 'next', 'revoked')
+            if not family[1] or family[2] == '1' then
+                return 'REVOKED'
+            end
+            if tonumber(family[1]) ~= tonumber(ARGV[1]) then
+                redis.call('HSET', KEYS[1], 'revoked', '1')
+                return 'REUSED'
+            end
+            redis.call('HSET', KEYS[1], 'next', tonumber(ARGV[1]) + 1)
+            redis.call('PEXPIREAT', KEYS[1], ARGV[2])
+            return 'ACCEPTED'
+            """, String.class);
+
+    // KEYS[1] family; ARGV[1] expiry (epoch ms). Never shortens the family's lifetime.
+    private static final RedisScript<Long> REVOKE = new DefaultRedisScript<>("""
+            redis.call('HSET', KEYS[1], 'revoked', '1')
+            local ttl = redis.call('PTTL', KEYS[1])
+            local t = redis.call('TIME')
+            local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+            if ttl < 0 or now + ttl < tonumber(ARGV[1]) then
+                redis.call('PEXPIREAT', KEYS[1], ARGV[1])
+            end
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redis;
+
+    public RedisRefreshFamilyStore(StringRedisTemplate redis) {
+        this.redis = redis;
+    }
+
+    @Override
+    public void register(String familyId, long expiresAtMs) {
+        redis.execute(REGISTER, List.of(KEY_PREFIX + familyId), String.valueOf(expiresAtMs));
+    }
+
+    @Override
+    public Outcome advance(String familyId, int sequence, long newExpiresAtMs) {
+        String result = redis.execute(ADVANCE, List.of(KEY_PREFIX + familyId),
+                String.valueOf(sequence), String.valueOf(newExpiresAtMs));
+        if (result == null) {
+            throw new IllegalStateException("Refresh family script returned no result");
+        }
+        return Outcome.valueOf(result);
+    }
+
+    @Override
+    public void revoke(String familyId, long expiresAtMs) {
+        redis.execute(REVOKE, List.of(KEY_PREFIX + familyId), String.valueOf(expiresAtMs));
+    }
+}
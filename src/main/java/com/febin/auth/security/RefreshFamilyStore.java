@@ -0,0 +1,35 @@
+package com.febin.auth.security;
+
+/**
+ * Server-side state of stateless refresh tokens ({@code jwt.refresh-mode=stateless}): for each
+ * token family, the sequence number expected next and whether the family was revoked.
+ * <p>
+ * Presenting any other sequence than the expected one means an older token was replayed, so the
+ * whole family is revoked. A family the store does not know is rejected, never adopted: otherwise
+ * a logged-out or replayed token would become valid again wherever the state is missing.
+ * <p>
+ * Selected with {@code jwt.refresh.family-store}. The default {@link InMemoryRefreshFamilyStore}
+ * only lives as long as the instance (a restart ends every stateless session) and cannot be
+ * shared; with several replicas use {@code redis} ({@link RedisRefreshFamilyStore}).
+ */
+public interface RefreshFamilyStore {
+
+    enum Outcome {
+        ACCEPTED,
+        REUSED,
+        REVOKED
+    }
+
+    /**
+     * Start a new family whose first token has sequence 0.
+     */
+    void register(String familyId, long expiresAtMs);
+
+    /**
+     * Consume the token with {@code sequence}; on success the family now expects {@code sequence + 1},
+     * valid until {@code newExpiresAtMs}.
+     */
+    Outcome advance(String familyId, int sequence, long newExpiresAtMs);
+
+    void revoke(String familyId, long expiresAtMs);
+}
@@ -0,0 +1,52 @@
+package com.febin.auth.security;
+
+import com.febin.auth.exception.TokenValidationException;
+import com.febin.auth.util.AccessTokenClaims;
+
+/**
+ * Outcome of {@link AccessTokenValidator#validate(String)}: a status, plus the claims when valid.
+ */
+public record TokenValidationResult(Status status, AccessTokenClaims claims) {
+
+    public enum Status {
+        VALID,
+        EXPIRED,
+        BAD_SIGNATURE,
+        MALFORMED,
+        REVOKED;
+
+        static Status of(TokenValidationException.Reason reason) {
+            return switch (reason) {
+                case EXPIRED -> EXPIRED;
+                case BAD_SIGNATURE -> BAD_SIGNATURE;
+                case MALFORMED -> MALFORMED;
+            };
+        }
+    }
+
+    private static final TokenValidationResult EXPIRED = new TokenValidationResult(Status.EXPIRED, null);
+    private static final TokenValidationResult BAD_SIGNATURE = new TokenValidationResult(Status.BAD_SIGNATURE, null);
+    private static final TokenValidationResult MALFORMED = new TokenValidationResult(Status.MALFORMED, null);
+    private static final TokenValidationResult REVOKED = new TokenValidationResult(Status.REVOKED, null);
+
+    public static TokenValidationResult valid(AccessTokenClaims claims) {
+        return new TokenValidationResult(Status.VALID, claims);
+    }
+
+    /**
+     * Shared instance for a failed validation; failures carry no claims.
+     */
+    public static TokenValidationResult invalid(Status status) {
+        return switch (status) {
+            case EXPIRED -> EXPIRED;
+            case BAD_SIGNATURE -> BAD_SIGNATURE;
+            case MALFORMED -> MALFORMED;
+            case REVOKED -> REVOKED;
+            case VALID -> throw new IllegalArgumentException("A valid result needs claims");
+        };
+    }
+
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+}
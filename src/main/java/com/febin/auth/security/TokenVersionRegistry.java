@@ -0,0 +1,119 @@
+package com.febin.auth.security;
+
+import com.febin.auth.config.JwtProperties;
+import com.febin.auth.repository.DeletedUserRepository;
+import com.febin.auth.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of per-user token cutoffs ({@code users.token_version}).
+ * <p>
+ * Only users whose tokens have recently been revoked are tracked; everyone else is at version 0.
+ * {@link JwtAuthenticationFilter} rejects tokens whose {@code ver} claim is below the user's
+ * current version without touching the database. The map is a {@link ConcurrentHashMap},
+ * whose internal lock striping keeps concurrent readers and writers from contending.
+ * <p>
+ * Local revocations are applied immediately; revocations made by other instances are picked
+ * up by the periodic sync, which only reads rows whose {@code tokens_revoked_at} moved.
+ * {@code tokens_revoked_at} is stamped by the revoking instance before its transaction commits,
+ * so rows can become visible out of timestamp order (and instance clocks may differ): every sync
+ * re-reads the last {@code jwt.token-version.sync-overlap-ms} before its cursor. Re-applying a row
+ * is harmless.
+ * <p>
+ * Cutoffs of deleted users are read from {@code deleted_users}, since their users row is gone.
+ * <p>
+ * Once every access token issued before a cutoff has expired, the cutoff can no longer reject
+ * anything and is dropped (and so are expired deleted_users rows).
+ */
+@Component
+public class TokenVersionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenVersionRegistry.class);
+
+    private final UserRepository userRepository;
+    private final DeletedUserRepository deletedUserRepository;
+    private final long overlapMs;
+    private final long retentionMs;
+    private final Map<Long, Cutoff> cutoffs = new ConcurrentHashMap<>();
+    private volatile Instant syncedUpTo = Instant.EPOCH;
+
+    public TokenVersionRegistry(UserRepository userRepository, DeletedUserRepository deletedUserRepository,
+                                JwtProperties jwtProperties,
+                                @Value("${jwt.token-version.sync-overlap-ms:60000}") long overlapMs) {
+        this.userRepository = userRepository;
+        this.deletedUserRepository = deletedUserRepository;
+        this.overlapMs = Math.max(0, overlapMs);
+        // tokens issued before the revocation expire at most one access-token lifetime later
+        this.retentionMs = jwtProperties.getAccessTokenValidityMs() + this.overlapMs;
+    }
+
+    /**
+     * Whether a token carrying {@code tokenVersion} is still acceptable for the user.
+     */
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        if (userId == null) return true;
+        Cutoff cutoff = cutoffs.get(userId);
+        return cutoff == null || tokenVersion >= cutoff.version();
+    }
+
+    /**
+     * Record that tokens below {@code version} are no longer valid for the user, as of now.
+     */
+    public void advance(Long userId, int version) {
+        advance(userId, version, System.currentTimeMillis());
+    }
+
+    public int size() {
+        return cutoffs.size();
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${jwt.token-version.sync-interval-ms:15000}")
+    public void syncFromDatabase() {
+        try {
+            Instant cursor = syncedUpTo;
+            Instant since = cursor.equals(Instant.EPOCH) ? cursor : cursor.minusMillis(overlapMs);
+            Instant newest = cursor;
+            List<UserRepository.TokenVersionView> rows = new ArrayList<>(userRepository.findTokenVersionsRevokedSince(since));
+            rows.addAll(deletedUserRepository.findTokenVersionsDeletedSince(since));
+            for (var row : rows) {
+                Instant revokedAt = row.getTokensRevokedAt();
+                if (revokedAt == null) continue;
+                advance(row.getId(), row.getTokenVersion(), revokedAt.toEpochMilli());
+                if (revokedAt.isAfter(newest)) newest = revokedAt;
+            }
+            syncedUpTo = newest;
+            deletedUserRepository.deleteDeletedBefore(Instant.now().minusMillis(retentionMs));
+        } catch (RuntimeException e) {
+            logger.warn("Could not sync token versions: {}", e.getMessage());
+        }
+        purgeExpired();
+    }
+
+    /**
+     * Drop cutoffs older than every access token they could still reject.
+     */
+    void purgeExpired() {
+        long threshold = System.currentTimeMillis() - retentionMs;
+        cutoffs.values().removeIf(cutoff -> cutoff.revokedAtMs() < threshold);
+    }
+
+    private void advance(Long userId, int version, long revokedAtMs) {
+        cutoffs.merge(userId, new Cutoff(version, revokedAtMs), (old, update) -> new Cutoff(
+                Math.max(old.version(), update.version()), Math.max(old.revokedAtMs(), update.revokedAtMs())));
+    }
+
+    // ------------ Helper classes ------------
+
+    private record Cutoff(int version, long revokedAtMs) {
+    }
+}
@@ -0,0 +1,126 @@
+package com.febin.auth.security;
+
+import com.febin.auth.config.JwtProperties;
+import com.febin.auth.util.AccessTokenClaims;
+import com.febin.auth.util.TokenHashes;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded cache of access tokens whose signature has already been verified.
+ * <p>
+ * Entries are keyed by the SHA-256 digest of the raw token (so the cache never holds
+ * usable bearer tokens) and are only served until the token's own {@code exp}.
+ * When the cache is full, expired entries are swept first; if that is not enough,
+ * roughly a tenth of the entries are dropped to make room.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final Map<TokenKey, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public VerifiedTokenCache(JwtProperties jwtProperties) {
+        this.enabled = jwtProperties.getCache().isEnabled();
+        this.maxSize = Math.max(1, jwtProperties.getCache().getMaxSize());
+    }
+
+    /**
+     * Return the verified claims for the token, or null if the token is not cached
+     * (or its cached entry has expired).
+     */
+    public AccessTokenClaims get(String token) {
+        if (!enabled) return null;
+        TokenKey key = TokenKey.of(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAtMs <= System.currentTimeMillis()) {
+            if (entries.remove(key, entry)) evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.claims;
+    }
+
+    /**
+     * Cache claims that have just been verified. Tokens without an expiry are not cached.
+     */
+    public void put(String token, AccessTokenClaims claims) {
+        if (!enabled || claims.expiresAt() <= 0) return;
+        long expiresAtMs = claims.expiresAtMillis();
+        if (expiresAtMs <= System.currentTimeMillis()) return;
+        if (entries.size() >= maxSize) makeRoom();
+        entries.put(TokenKey.of(token), new Entry(claims, expiresAtMs));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private void makeRoom() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAtMs <= now) {
+                it.remove();
+                evictions.increment();
+            }
+        }
+        if (entries.size() < maxSize) return;
+
+        // Still full of live tokens: drop an arbitrary tenth, they will simply be re-verified.
+        int toEvict = Math.max(1, maxSize / 10);
+        it = entries.values().iterator();
+        while (toEvict > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+            toEvict--;
+        }
+    }
+
+    // ------------ Helper classes ------------
+
+    private record Entry(AccessTokenClaims claims, long expiresAtMs) {
+    }
+
+    /**
+     * SHA-256 of the token, held as four longs so equality and hashing stay cheap.
+     */
+    private record TokenKey(long a, long b, long c, long d) {
+        static TokenKey of(String token) {
+            ByteBuffer buf = ByteBuffer.wrap(TokenHashes.sha256(token));
+            return new TokenKey(buf.getLong(), buf.getLong(), buf.getLong(), buf.getLong());
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package com.febin.auth.service;
 
+import com.febin.auth.config.JwtProperties;
 import com.febin.auth.dto.LoginRequest;
-import com.febin.auth.entity.RefreshToken;
 import com.febin.auth.entity.User;
-import com.febin.auth.repository.RefreshTokenRepository;
+import com.febin.auth.exception.InvalidTokenException;
+import com.febin.auth.exception.TokenValidationException;
+import com.febin.auth.repository.UserRepository;
+import com.febin.auth.security.AccessTokenDenylist;
+import com.febin.auth.security.NegativeLookupCache;
+import com.febin.auth.security.RefreshFamilyStore;
+import com.febin.auth.store.RefreshTokenStore;
+import com.febin.auth.store.RotationResult;
+import com.febin.auth.store.StoredRefreshToken;
+import com.febin.auth.util.AccessTokenClaims;
 import com.febin.auth.util.CookieUtil;
 import com.febin.auth.util.JwtUtil;
-import jakarta.servlet.http.Cookie;
+import com.febin.auth.util.RefreshTokenClaims;
+import com.febin.auth.util.SecureTokenGenerator;
+import com.febin.auth.util.TokenHashes;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -16,24 +27,44 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
-import java.util.UUID;
 
 @Service
 public class AuthService {
 
     private final AuthenticationConfiguration authenticationConfiguration;
-    private final RefreshTokenRepository refreshTokenRepository;
+    private final RefreshTokenStore refreshTokenStore;
     private final JwtUtil jwtUtil;
     private final CookieUtil cookieUtil;
+    private final AccessTokenDenylist accessTokenDenylist;
+    private final UserRepository userRepository;
+    private final RefreshFamilyStore refreshFamilyStore;
+    private final SessionService sessionService;
+    private final SecureTokenGenerator tokenGenerator;
+    private final NegativeLookupCache negativeLookupCache;
+    private final boolean statelessRefresh;
 
     public AuthService(AuthenticationConfiguration authenticationConfiguration,
-                       RefreshTokenRepository refreshTokenRepository,
+                       RefreshTokenStore refreshTokenStore,
                        JwtUtil jwtUtil,
-                       CookieUtil cookieUtil) {
+                       CookieUtil cookieUtil,
+                       AccessTokenDenylist accessTokenDenylist,
+                       UserRepository userRepository,
+                       RefreshFamilyStore refreshFamilyStore,
+                       SessionService sessionService,
+                       SecureTokenGenerator tokenGenerator,
+                       NegativeLookupCache negativeLookupCache,
+                       JwtProperties jwtProperties) {
         this.authenticationConfiguration = authenticationConfiguration;
-        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshTokenStore = refreshTokenStore;
         this.jwtUtil = jwtUtil;
         this.cookieUtil = cookieUtil;
+        this.accessTokenDenylist = accessTokenDenylist;
+        this.userRepository = userRepository;
+        this.refreshFamilyStore = refreshFamilyStore;
+        this.sessionService = sessionService;
+        this.tokenGenerator = tokenGenerator;
+        this.negativeLookupCache = negativeLookupCache;
+        this.statelessRefresh = jwtProperties.isStatelessRefresh();
     }
 
     @Transactional
@@ -46,26 +77,82 @@ public class AuthService {
         return user;
     }
 
-    @Transactional
-    public void refresh(String refreshTokenValue, HttpServletResponse response) {
-        RefreshToken refreshToken = refreshTokenRepository.findByToken(refreshTokenValue)
-                .orElseThrow(() -> new RuntimeException("Refresh token not found"));
+    /**
+     * Rotate the refresh token: the {@link RefreshTokenStore} consumes it atomically, then the next
+     * token of the same family is issued. Presenting a token that was already rotated revokes its whole family
+     * (the revocation is committed even though the call fails).
+     * <p>
+     * Callers go through {@link RefreshCoalescer}, so concurrent refreshes with one token share one rotation.
+     */
+    @Transactional(noRollbackFor = InvalidTokenException.class)
+    public IssuedTokens rotateRefreshToken(String refreshTokenValue) {
+        if (statelessRefresh) {
+            return rotateStatelessRefreshToken(refreshTokenValue);
+        }
+        if (negativeLookupCache.isKnownMiss(NegativeLookupCache.Kind.REFRESH_TOKEN, refreshTokenValue)) {
+            throw new InvalidTokenException("Refresh token not found");
+        }
+        RotationResult result = refreshTokenStore.rotate(TokenHashes.sha256(refreshTokenValue), Instant.now());
+        switch (result.outcome()) {
+            case NOT_FOUND -> {
+                // refresh tokens are random and never reissued, so a miss stays a miss
+                negativeLookupCache.recordMiss(NegativeLookupCache.Kind.REFRESH_TOKEN, refreshTokenValue);
+                throw new InvalidTokenException("Refresh token not found");
+            }
+            case REUSED -> {
+                // an already-rotated token came back: assume it leaked and end the session
+                refreshTokenStore.revokeFamily(result.token().familyId());
+                throw new InvalidTokenException("Refresh token was already used; the session has been revoked");
+            }
+            case EXPIRED -> throw new InvalidTokenException("Refresh token is expired or revoked");
+            case ROTATED -> { }
+        }
+
+        StoredRefreshToken refreshToken = result.token();
+        User user = userRepository.findById(refreshToken.userId())
+                .orElseThrow(() -> new InvalidTokenException("Refresh token is expired or revoked"));
+        return new IssuedTokens(jwtUtil.generateAccessToken(user),
+                createAndStoreRefreshToken(user, refreshToken.familyId()));
+    }
 
-        if (refreshToken.isRevoked() || refreshToken.getExpiryDate().isBefore(Instant.now())) {
-            throw new RuntimeException("Refresh token is expired or revoked");
+    /**
+     * Stateless refresh: verify the signed token, advance its family in {@link RefreshFamilyStore}
+     * and issue the next token of the family. The only database access is reading the user.
+     */
+    private IssuedTokens rotateStatelessRefreshToken(String refreshTokenValue) {
+        RefreshTokenClaims claims;
+        try {
+            claims = jwtUtil.parseRefreshToken(refreshTokenValue);
+        } catch (TokenValidationException e) {
+            throw new InvalidTokenException("Refresh token is expired or invalid");
         }
 
-        User user = refreshToken.getUser();
-        processOAuthPostLogin(user, response);
-        refreshToken.setRevoked(true);
-        refreshTokenRepository.save(refreshToken);
+        long expiresAtMs = System.currentTimeMillis() + jwtUtil.getRefreshTokenValidityMs();
+        switch (refreshFamilyStore.advance(claims.familyId(), claims.sequence(), expiresAtMs)) {
+            case REUSED -> throw new InvalidTokenException("Refresh token was already used; the session has been revoked");
+            case REVOKED -> throw new InvalidTokenException("Refresh token is expired or revoked");
+            case ACCEPTED -> { }
+        }
+
+        User user = userRepository.findById(claims.userId())
+                .filter(User::isEnabled)
+                // a password change or similar bumped the version after this family was issued
+                .filter(u -> claims.tokenVersion() >= u.getTokenVersion())
+                .orElseThrow(() -> new InvalidTokenException("Refresh token is expired or revoked"));
+
+        String refreshToken = jwtUtil.generateRefreshToken(user, claims.familyId(), claims.sequence() + 1, expiresAtMs);
+        return new IssuedTokens(jwtUtil.generateAccessToken(user), refreshToken);
     }
 
+    /**
+     * Revoke both tokens of the session (either may be null) and clear the cookies.
+     */
     @Transactional
-    public void logout(String refreshTokenValue, HttpServletResponse response) {
-        revokeRefreshToken(refreshTokenValue);
-        cookieUtil.deleteCookie(response, CookieUtil.ACCESS_TOKEN_COOKIE, "Lax");
-        cookieUtil.deleteCookie(response, CookieUtil.REFRESH_TOKEN_COOKIE, "Lax");
+    public void logout(String refreshTokenValue, String accessTokenValue, HttpServletResponse response) {
+        if (refreshTokenValue != null) revokeRefreshToken(refreshTokenValue);
+        if (accessTokenValue != null) revokeAccessToken(accessTokenValue);
+        cookieUtil.deleteCookie(response, CookieUtil.ACCESS_TOKEN_COOKIE);
+        cookieUtil.deleteCookie(response, CookieUtil.REFRESH_TOKEN_COOKIE);
     }
 
     /**
@@ -73,33 +160,70 @@ public class AuthService {
      */
     public void processOAuthPostLogin(User user, HttpServletResponse response) {
         String accessToken = jwtUtil.generateAccessToken(user);
-        String refreshToken = createAndStoreRefreshToken(user);
+        String refreshToken;
+        if (statelessRefresh) {
+            refreshToken = startRefreshFamily(user);
+        } else {
+            sessionService.enforceSessionCap(user.getId());
+            refreshToken = createAndStoreRefreshToken(user, newFamilyId());
+        }
+        writeTokenCookies(response, new IssuedTokens(accessToken, refreshToken));
+    }
+
+    public void writeTokenCookies(HttpServletResponse response, IssuedTokens tokens) {
+        // Secure/SameSite come from app.cookie.* (see AppCookieProperties)
+        cookieUtil.addCookie(response, CookieUtil.ACCESS_TOKEN_COOKIE, tokens.accessToken(),
+                jwtUtil.getAccessTokenValidityMs() / 1000);
+        cookieUtil.addCookie(response, CookieUtil.REFRESH_TOKEN_COOKIE, tokens.refreshToken(),
+                jwtUtil.getRefreshTokenValidityMs() / 1000);
+    }
+
+    private String startRefreshFamily(User user) {
+        String familyId = tokenGenerator.newId();
+        long expiresAtMs = System.currentTimeMillis() + jwtUtil.getRefreshTokenValidityMs();
+        refreshFamilyStore.register(familyId, expiresAtMs);
+        return jwtUtil.generateRefreshToken(user, familyId, 0, expiresAtMs);
+    }
+
+    private byte[] newFamilyId() {
+        return tokenGenerator.randomBytes(16);
+    }
 
-        boolean secure = true; // in dev override to false via config
-        String sameSite = "Lax";
-        Cookie accessCookie = cookieUtil.createCookie(CookieUtil.ACCESS_TOKEN_COOKIE, accessToken,
-                (int) (jwtUtil.getAccessTokenValidityMs() / 1000), true, secure, sameSite);
-        Cookie refreshCookie = cookieUtil.createCookie(CookieUtil.REFRESH_TOKEN_COOKIE, refreshToken,
-                (int) (jwtUtil.getRefreshTokenValidityMs() / 1000), true, secure, sameSite);
+    private String createAndStoreRefreshToken(User user, byte[] familyId) {
+        // 256 random bits; only the SHA-256 goes to the database
+        String token = tokenGenerator.newToken();
 
-        cookieUtil.addCookie(response, accessCookie, sameSite);
-        cookieUtil.addCookie(response, refreshCookie, sameSite);
+        Instant now = Instant.now();
+        refreshTokenStore.save(new StoredRefreshToken(TokenHashes.sha256(token), user.getId(), familyId,
+                now.plusMillis(jwtUtil.getRefreshTokenValidityMs()), now, false));
+        return token;
     }
 
-    private String createAndStoreRefreshToken(User user) {
-        RefreshToken rt = new RefreshToken();
-        rt.setToken(UUID.randomUUID().toString());
-        rt.setUser(user);
-        rt.setExpiryDate(Instant.now().plusMillis(jwtUtil.getRefreshTokenValidityMs()));
-        rt.setRevoked(false);
-        refreshTokenRepository.save(rt);
-        return rt.getToken();
+    /**
+     * Deny the access token until it expires, so it stops working immediately rather than
+     * remaining valid for the rest of its lifetime.
+     */
+    public void revokeAccessToken(String token) {
+        try {
+            AccessTokenClaims claims = jwtUtil.parseAccessToken(token);
+            accessTokenDenylist.revoke(claims.tokenId(), claims.expiresAtMillis());
+        } catch (TokenValidationException e) {
+            // already invalid, nothing to revoke
+        }
     }
 
     public void revokeRefreshToken(String token) {
-        refreshTokenRepository.findByToken(token).ifPresent(rt -> {
-            rt.setRevoked(true);
-            refreshTokenRepository.save(rt);
-        });
+        if (statelessRefresh) {
+            try {
+                RefreshTokenClaims claims = jwtUtil.parseRefreshToken(token);
+                refreshFamilyStore.revoke(claims.familyId(), claims.expiresAtMillis());
+            } catch (TokenValidationException e) {
+                // already invalid, nothing to revoke
+            }
+            return;
+        }
+        // logging out ends the whole session, including tokens rotated from this one
+        refreshTokenStore.find(TokenHashes.sha256(token))
+                .ifPresent(rt -> refreshTokenStore.revokeFamily(rt.familyId()));
     }
 }
@@ -0,0 +1,7 @@
+package com.febin.auth.service;
+
+/**
+ * An access/refresh token pair handed to the client as the ATK/RTK cookies.
+ */
+public record IssuedTokens(String accessToken, String refreshToken) {
+}
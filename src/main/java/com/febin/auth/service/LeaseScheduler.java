@@ -0,0 +1,198 @@
+package com.febin.auth.service;
+
+import com.febin.auth.entity.SchedulerLease;
+import com.febin.auth.repository.SchedulerLeaseRepository;
+import com.febin.auth.util.SecureTokenGenerator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a background job on one node of the cluster at a time.
+ * <p>
+ * Each job has a row in {@code scheduler_leases}. A node that wins the conditional UPDATE holds the
+ * lease for {@code app.scheduler.lease.duration-ms} and keeps renewing it from a heartbeat thread
+ * while it is alive, so the job stays on that node; other nodes skip their runs. If the holder dies
+ * or stalls, the lease expires and the next node to try takes it over.
+ * <p>
+ * Long-running jobs should check {@link #isHeld(String)} between units of work and stop once the
+ * lease is lost. With {@code app.scheduler.lease.enabled=false} (single instance) every job runs locally.
+ */
+@Service
+public class LeaseScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaseScheduler.class);
+
+    private final SchedulerLeaseRepository leaseRepository;
+    private final boolean enabled;
+    private final long leaseMs;
+    private final long leaseNanos;
+    private final String nodeId;
+
+    private final Map<String, HeldLease> held = new ConcurrentHashMap<>();
+    private final Set<String> knownJobs = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService heartbeats;
+
+    public LeaseScheduler(SchedulerLeaseRepository leaseRepository,
+                          SecureTokenGenerator tokenGenerator,
+                          @Value("${app.scheduler.lease.enabled:true}") boolean enabled,
+                          @Value("${app.scheduler.lease.duration-ms:60000}") long leaseMs,
+                          @Value("${app.scheduler.lease.heartbeat-interval-ms:15000}") long heartbeatMs,
+                          @Value("${app.scheduler.node-id:}") String nodeId) {
+        if (heartbeatMs <= 0 || heartbeatMs >= leaseMs) {
+            throw new IllegalStateException("app.scheduler.lease.heartbeat-interval-ms must be positive and below duration-ms");
+        }
+        this.leaseRepository = leaseRepository;
+        this.enabled = enabled;
+        this.leaseMs = leaseMs;
+        // stop trusting a lease a little before the database would hand it to someone else
+        this.leaseNanos = TimeUnit.MILLISECONDS.toNanos(leaseMs - leaseMs / 10);
+        this.nodeId = StringUtils.hasText(nodeId) ? nodeId : defaultNodeId(tokenGenerator);
+
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lease-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        if (enabled) {
+            heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Run {@code task} if this node holds (or can take) the lease of {@code jobName}.
+     *
+     * @return false if another node holds the lease and the run was skipped
+     */
+    public boolean runExclusively(String jobName, Runnable task) {
+        if (!tryAcquire(jobName)) return false;
+        task.run();
+        return true;
+    }
+
+    /**
+     * Take (or keep) the lease of {@code jobName} without running anything; it is then renewed by the
+     * heartbeat until shutdown. For components that must only ever be active on one node.
+     *
+     * @return false if another node holds the lease
+     */
+    public boolean tryAcquire(String jobName) {
+        return !enabled || holdLease(jobName);
+    }
+
+    /**
+     * True while this node may keep working on the job.
+     */
+    public boolean isHeld(String jobName) {
+        if (!enabled) return true;
+        HeldLease lease = held.get(jobName);
+        return lease != null && lease.validUntilNanos - System.nanoTime() > 0;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * All lease rows, as seen by the database, plus whether this node currently trusts its own.
+     */
+    public List<Map<String, Object>> getLeases() {
+        Instant now = Instant.now();
+        return leaseRepository.findAll().stream()
+                .sorted(Comparator.comparing(SchedulerLease::getJobName))
+                .map(lease -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("jobName", lease.getJobName());
+                    row.put("owner", lease.getOwner());
+                    row.put("leaseUntil", lease.getLeaseUntil());
+                    row.put("expired", lease.getOwner() == null || lease.getLeaseUntil().isBefore(now));
+                    row.put("acquiredAt", lease.getAcquiredAt());
+                    row.put("heartbeatAt", lease.getHeartbeatAt());
+                    row.put("fencingToken", lease.getFencingToken());
+                    row.put("heldByThisNode", isHeld(lease.getJobName()) && nodeId.equals(lease.getOwner()));
+                    return row;
+                })
+                .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+        // hand the jobs over right away instead of making the other nodes wait for expiry
+        held.forEach((jobName, lease) -> {
+            try {
+                leaseRepository.release(jobName, nodeId, lease.fencingToken);
+            } catch (RuntimeException e) {
+                logger.debug("Could not release lease {}: {}", jobName, e.getMessage());
+            }
+        });
+        held.clear();
+    }
+
+    private boolean holdLease(String jobName) {
+        if (isHeld(jobName)) return true;
+        held.remove(jobName);
+        if (knownJobs.add(jobName)) {
+            leaseRepository.createIfAbsent(jobName);
+        }
+
+        long start = System.nanoTime();
+        if (leaseRepository.acquire(jobName, nodeId, leaseMs) != 1) return false;
+        // nobody else can take the lease before it expires, so this reads our own acquisition
+        long fencingToken = leaseRepository.findById(jobName)
+                .map(SchedulerLease::getFencingToken)
+                .orElseThrow(() -> new IllegalStateException("Lease row disappeared: " + jobName));
+        held.put(jobName, new HeldLease(fencingToken, start + leaseNanos));
+        logger.info("Node {} acquired lease for job {} (fencing token {})", nodeId, jobName, fencingToken);
+        return true;
+    }
+
+    private void heartbeat() {
+        held.forEach((jobName, lease) -> {
+            long start = System.nanoTime();
+            try {
+                if (leaseRepository.renew(jobName, nodeId, lease.fencingToken, leaseMs) == 1) {
+                    held.replace(jobName, lease, new HeldLease(lease.fencingToken, start + leaseNanos));
+                } else {
+                    held.remove(jobName, lease);
+                    logger.warn("Node {} lost lease for job {}", nodeId, jobName);
+                }
+            } catch (RuntimeException e) {
+                // keep the lease until it runs out locally; the next heartbeat may get through
+                logger.warn("Lease heartbeat for job {} failed: {}", jobName, e.getMessage());
+            }
+        });
+    }
+
+    private static String defaultNodeId(SecureTokenGenerator tokenGenerator) {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        if (host.length() > 64) host = host.substring(0, 64);
+        // suffix keeps a restarted process from inheriting its predecessor's leases
+        return host + "/" + tokenGenerator.newId();
+    }
+
+    // ------------ Helper classes ------------
+
+    private record HeldLease(long fencingToken, long validUntilNanos) {
+    }
+}
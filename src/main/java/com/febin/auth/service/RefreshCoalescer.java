@@ -0,0 +1,107 @@
+package com.febin.auth.service;
+
+import com.febin.auth.config.JwtProperties;
+import com.febin.auth.util.TokenHashes;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single-flight refresh: when several requests present the same refresh token at once (open
+ * tabs, parallel XHRs after the access token expired), only the first rotates it; the others
+ * wait for and receive the same new tokens.
+ * <p>
+ * The result stays shareable for {@code jwt.refresh-grace-period} after the rotation completes, so
+ * stragglers are not mistaken for token reuse (which would revoke the session). Failed rotations
+ * are not kept; callers already waiting get the same error.
+ * <p>
+ * Coalescing is per instance; requests spread over instances still rotate independently.
+ */
+@Service
+public class RefreshCoalescer {
+
+    private static final long WAIT_TIMEOUT_MS = 10_000;
+
+    private final AuthService authService;
+    private final long gracePeriodMs;
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    public RefreshCoalescer(AuthService authService, JwtProperties jwtProperties) {
+        this.authService = authService;
+        this.gracePeriodMs = jwtProperties.getRefreshGracePeriod().toMillis();
+    }
+
+    /**
+     * One rotation (or the shared result of one) for the given refresh token.
+     */
+    private static final class Flight {
+        final CompletableFuture<IssuedTokens> result = new CompletableFuture<>();
+        volatile long completedAtMs = Long.MAX_VALUE;
+
+        boolean isStale(long now, long gracePeriodMs) {
+            return completedAtMs != Long.MAX_VALUE && now - completedAtMs > gracePeriodMs;
+        }
+    }
+
+    public void refresh(String refreshTokenValue, HttpServletResponse response) {
+        authService.writeTokenCookies(response, rotate(refreshTokenValue));
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    private IssuedTokens rotate(String refreshTokenValue) {
+        String key = Base64.getEncoder().encodeToString(TokenHashes.sha256(refreshTokenValue));
+        long now = System.currentTimeMillis();
+        Flight mine = new Flight();
+        Flight flight = flights.compute(key,
+                (k, existing) -> existing != null && !existing.isStale(now, gracePeriodMs) ? existing : mine);
+
+        if (flight != mine) {
+            coalesced.increment();
+            return await(flight);
+        }
+        try {
+            IssuedTokens tokens = authService.rotateRefreshToken(refreshTokenValue);
+            mine.completedAtMs = System.currentTimeMillis();
+            mine.result.complete(tokens);
+            return tokens;
+        } catch (Throwable e) {
+            // also for Errors, so a failed flight never stays in the map with waiters parked on it
+            flights.remove(key, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static IssuedTokens await(Flight flight) {
+        try {
+            return flight.result.get(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException("Refresh failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out waiting for a concurrent refresh", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a concurrent refresh", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.coalescer-purge-interval-ms:60000}")
+    public void purgeStale() {
+        long now = System.currentTimeMillis();
+        flights.values().removeIf(flight -> flight.isStale(now, gracePeriodMs));
+    }
+}
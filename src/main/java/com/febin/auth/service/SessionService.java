@@ -0,0 +1,79 @@
+package com.febin.auth.service;
+
+import com.febin.auth.config.JwtProperties;
+import com.febin.auth.dto.SessionResponse;
+import com.febin.auth.entity.RefreshToken;
+import com.febin.auth.repository.RefreshTokenRepository;
+import com.febin.auth.store.RefreshTokenStore;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * A user's sessions, i.e. their live refresh-token families (database refresh mode).
+ * All queries are bounded and run on idx_refresh_tokens_user_revoked_expiry; revocations go through
+ * the {@link RefreshTokenStore} so a tiered store stops serving the session at once.
+ */
+@Service
+public class SessionService {
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final RefreshTokenStore refreshTokenStore;
+    private final int maxActiveSessions;
+
+    public SessionService(RefreshTokenRepository refreshTokenRepository, RefreshTokenStore refreshTokenStore,
+                          JwtProperties jwtProperties) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshTokenStore = refreshTokenStore;
+        this.maxActiveSessions = jwtProperties.getMaxActiveSessions();
+    }
+
+    /**
+     * Active sessions, newest first; pass the last {@code id} of a page as {@code beforeId} for the next one.
+     */
+    @Transactional(readOnly = true)
+    public List<SessionResponse> listActiveSessions(Long userId, Long beforeId, int limit) {
+        List<RefreshToken> tokens = refreshTokenRepository.findActiveByUserId(userId, Instant.now(),
+                beforeId == null ? Long.MAX_VALUE : beforeId, Limit.of(Math.clamp(limit, 1, MAX_PAGE_SIZE)));
+        return tokens.stream()
+                .map(rt -> new SessionResponse(rt.getId(), HEX.formatHex(rt.getFamilyId()),
+                        rt.getCreatedAt(), rt.getExpiryDate()))
+                .toList();
+    }
+
+    /**
+     * End one of the user's sessions. Returns false if the user has no such active session.
+     */
+    @Transactional
+    public boolean revokeSession(Long userId, String sessionId) {
+        byte[] familyId;
+        try {
+            familyId = HEX.parseHex(sessionId);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return familyId.length == 16 && refreshTokenStore.revokeFamilyOfUser(familyId, userId);
+    }
+
+    /**
+     * Make room for one more session by ending the oldest ones beyond jwt.max-active-sessions.
+     */
+    @Transactional
+    public void enforceSessionCap(Long userId) {
+        if (maxActiveSessions <= 0) return;
+        Instant now = Instant.now();
+        long active = refreshTokenRepository.countByUserIdAndRevokedFalseAndExpiryDateAfter(userId, now);
+        long excess = active - maxActiveSessions + 1;
+        if (excess <= 0) return;
+        for (byte[] familyId : refreshTokenRepository.findOldestActiveFamilyIds(userId, now, Limit.of((int) excess))) {
+            refreshTokenStore.revokeFamilyOfUser(familyId, userId);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.febin.auth.service;
+
+import com.febin.auth.entity.DeletedUser;
+import com.febin.auth.entity.User;
+import com.febin.auth.repository.DeletedUserRepository;
+import com.febin.auth.security.TokenVersionRegistry;
+import com.febin.auth.store.RefreshTokenStore;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+
+/**
+ * "Log out everywhere" for a user: invalidates every access and refresh token issued so far.
+ * <p>
+ * Access tokens are cut off by bumping {@code users.token_version} (checked in memory by
+ * {@link TokenVersionRegistry}); refresh tokens are revoked through the {@link RefreshTokenStore}
+ * (one bulk UPDATE with the default JPA store).
+ */
+@Service
+public class TokenRevocationService {
+
+    private final RefreshTokenStore refreshTokenStore;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final DeletedUserRepository deletedUserRepository;
+
+    public TokenRevocationService(RefreshTokenStore refreshTokenStore,
+                                  TokenVersionRegistry tokenVersionRegistry,
+                                  DeletedUserRepository deletedUserRepository) {
+        this.refreshTokenStore = refreshTokenStore;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.deletedUserRepository = deletedUserRepository;
+    }
+
+    /**
+     * Revoke all tokens of a managed user. The caller's transaction persists the new version.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revokeAllTokens(User user) {
+        int newVersion = user.getTokenVersion() + 1;
+        user.setTokenVersion(newVersion);
+        Instant now = Instant.now();
+        user.setTokensRevokedAt(now);
+        refreshTokenStore.revokeAllForUser(user.getId(), now);
+
+        Long userId = user.getId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tokenVersionRegistry.advance(userId, newVersion);
+            }
+        });
+    }
+
+    /**
+     * Revoke all tokens of a user about to be deleted. The users row goes away with the delete,
+     * so the new cutoff is also recorded in deleted_users for the other instances to sync.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revokeAllTokensOfDeletedUser(User user) {
+        revokeAllTokens(user);
+        DeletedUser deleted = new DeletedUser();
+        deleted.setUserId(user.getId());
+        deleted.setTokenVersion(user.getTokenVersion());
+        deleted.setDeletedAt(user.getTokensRevokedAt());
+        deletedUserRepository.save(deleted);
+    }
+}
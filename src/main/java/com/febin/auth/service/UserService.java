@@ -6,6 +6,10 @@ import com.febin.auth.exception.InvalidTokenException;
 import com.febin.auth.repository.RoleRepository;
 import com.febin.auth.repository.UserProviderRepository;
 import com.febin.auth.repository.UserRepository;
+import com.febin.auth.security.AuthenticatedUser;
+import com.febin.auth.security.NegativeLookupCache;
+import com.febin.auth.security.NegativeLookupCache.Kind;
+import com.febin.auth.util.SecureTokenGenerator;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
@@ -20,6 +24,8 @@ import org.springframework.security.oauth2.client.registration.ClientRegistratio
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
@@ -28,9 +34,7 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
 import java.util.Set;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,6 +45,9 @@ public class UserService implements UserDetailsService {
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
     private final ClientRegistrationRepository clientRegistrationRepository;
+    private final TokenRevocationService tokenRevocationService;
+    private final SecureTokenGenerator tokenGenerator;
+    private final NegativeLookupCache negativeLookupCache;
     private final RestTemplate restTemplate;
 
     public UserService(UserRepository userRepository,
@@ -48,13 +55,19 @@ public class UserService implements UserDetailsService {
                        UserProviderRepository userProviderRepository,
                        @Lazy PasswordEncoder passwordEncoder,
                        EmailService emailService,
-                       ClientRegistrationRepository clientRegistrationRepository) {
+                       ClientRegistrationRepository clientRegistrationRepository,
+                       TokenRevocationService tokenRevocationService,
+                       SecureTokenGenerator tokenGenerator,
+                       NegativeLookupCache negativeLookupCache) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.userProviderRepository = userProviderRepository;
         this.passwordEncoder = passwordEncoder;
         this.emailService = emailService;
         this.clientRegistrationRepository = clientRegistrationRepository;
+        this.tokenRevocationService = tokenRevocationService;
+        this.tokenGenerator = tokenGenerator;
+        this.negativeLookupCache = negativeLookupCache;
         this.restTemplate = new RestTemplate();
     }
 
@@ -73,14 +86,15 @@ public class UserService implements UserDetailsService {
         user.setUsername(username);
         user.setEmail(email);
         user.setPassword(passwordEncoder.encode(rawPassword));
-        user.setVerificationCode(UUID.randomUUID().toString());
+        user.setVerificationCode(tokenGenerator.newToken());
         user.setAccountStatus(AccountStatus.UNVERIFIED);
 
         Role userRole = roleRepository.findByName("ROLE_USER").orElseThrow(() -> new RuntimeException("Role not found"));
         user.setRoles(Set.of(userRole));
         
         User savedUser = userRepository.save(user);
-        
+        forgetMissAfterCommit(Kind.VERIFICATION_CODE, savedUser.getVerificationCode());
+
         emailService.sendAccountVerificationEmail(savedUser.getEmail(), savedUser.getUsername(), savedUser.getVerificationCode());
 
         return savedUser;
@@ -88,8 +102,14 @@ public class UserService implements UserDetailsService {
 
     @Transactional
     public void verifyUser(String code) {
-        User user = userRepository.findByVerificationCode(code)
-                .orElseThrow(() -> new InvalidTokenException("Invalid verification code."));
+        if (negativeLookupCache.isKnownMiss(Kind.VERIFICATION_CODE, code)) {
+            throw new InvalidTokenException("Invalid verification code.");
+        }
+        User user = userRepository.findByVerificationCode(code).orElse(null);
+        if (user == null) {
+            negativeLookupCache.recordMiss(Kind.VERIFICATION_CODE, code);
+            throw new InvalidTokenException("Invalid verification code.");
+        }
 
         user.setAccountStatus(AccountStatus.ACTIVE);
         user.setVerificationCode(null);
@@ -97,11 +117,13 @@ public class UserService implements UserDetailsService {
     }
 
     @Transactional
-    public void resetPassword(User user, String currentPassword, String newPassword) {
+    public void resetPassword(Long userId, String currentPassword, String newPassword) {
+        User user = findUserById(userId);
         if (!passwordEncoder.matches(currentPassword, user.getPassword())) {
             throw new InvalidPasswordException("Current password does not match");
         }
         user.setPassword(passwordEncoder.encode(newPassword));
+        tokenRevocationService.revokeAllTokens(user);
         userRepository.save(user);
     }
 
@@ -110,18 +132,25 @@ public class UserService implements UserDetailsService {
         Optional<User> userOpt = userRepository.findByEmail(email);
         if (userOpt.isPresent()) {
             User user = userOpt.get();
-            String code = String.format("%06d", new Random().nextInt(999999));
+            String code = tokenGenerator.newNumericCode(6);
             user.setPasswordResetCode(code);
             user.setPasswordResetCodeExpiresAt(Instant.now().plusSeconds(600)); // 10 minutes
             userRepository.save(user);
+            forgetMissAfterCommit(Kind.PASSWORD_RESET_CODE, code);
             emailService.sendPasswordResetEmail(user.getEmail(), user.getUsername(), code);
         }
     }
 
     @Transactional
     public void resetPasswordWithCode(String code, String newPassword) {
-        User user = userRepository.findByPasswordResetCode(code)
-                .orElseThrow(() -> new InvalidTokenException("Invalid password reset code"));
+        if (negativeLookupCache.isKnownMiss(Kind.PASSWORD_RESET_CODE, code)) {
+            throw new InvalidTokenException("Invalid password reset code");
+        }
+        User user = userRepository.findByPasswordResetCode(code).orElse(null);
+        if (user == null) {
+            negativeLookupCache.recordMiss(Kind.PASSWORD_RESET_CODE, code);
+            throw new InvalidTokenException("Invalid password reset code");
+        }
 
         if (user.getPasswordResetCodeExpiresAt().isBefore(Instant.now())) {
             throw new InvalidTokenException("Password reset code has expired");
@@ -130,6 +159,7 @@ public class UserService implements UserDetailsService {
         user.setPassword(passwordEncoder.encode(newPassword));
         user.setPasswordResetCode(null);
         user.setPasswordResetCodeExpiresAt(null);
+        tokenRevocationService.revokeAllTokens(user);
         userRepository.save(user);
     }
 
@@ -147,14 +177,15 @@ public class UserService implements UserDetailsService {
     }
 
     @Transactional
-    public void disableUserAccount(Long userIdToDisable, User adminUser) {
-        if (userIdToDisable.equals(adminUser.getId())) {
+    public void disableUserAccount(Long userIdToDisable, Long adminUserId) {
+        if (userIdToDisable.equals(adminUserId)) {
             throw new IllegalArgumentException("Admin cannot disable their own account.");
         }
         User userToDisable = userRepository.findById(userIdToDisable)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + userIdToDisable));
 
         userToDisable.setAccountStatus(AccountStatus.DISABLED);
+        tokenRevocationService.revokeAllTokens(userToDisable);
         userRepository.save(userToDisable);
     }
 
@@ -168,8 +199,8 @@ public class UserService implements UserDetailsService {
     }
 
     @Transactional
-    public void updateUserRoles(Long userIdToUpdate, Set<String> roleNames, User adminUser) {
-        if (userIdToUpdate.equals(adminUser.getId())) {
+    public void updateUserRoles(Long userIdToUpdate, Set<String> roleNames, Long adminUserId) {
+        if (userIdToUpdate.equals(adminUserId)) {
             throw new IllegalArgumentException("Admin cannot change their own roles.");
         }
 
@@ -182,32 +213,35 @@ public class UserService implements UserDetailsService {
         }
 
         userToUpdate.setRoles(newRoles);
+        tokenRevocationService.revokeAllTokens(userToUpdate);
         userRepository.save(userToUpdate);
     }
 
     @Transactional
-    public void deleteUserAccount(Long idToDelete, User requestingUser) {
+    public void deleteUserAccount(Long idToDelete, AuthenticatedUser requestingUser) {
         // First, ensure the user to be deleted actually exists.
         User userToDelete = userRepository.findById(idToDelete)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + idToDelete));
 
-        boolean isAdmin = requestingUser.getRoles().stream().anyMatch(role -> role.getName().equals("ROLE_ADMIN"));
+        boolean isAdmin = requestingUser.hasRole(AuthenticatedUser.ROLE_ADMIN);
 
         if (isAdmin) {
-            if (idToDelete.equals(requestingUser.getId())) {
+            if (idToDelete.equals(requestingUser.id())) {
                 throw new IllegalArgumentException("Admin cannot delete their own account.");
             }
-            userRepository.delete(userToDelete);
         } else {
-            if (!idToDelete.equals(requestingUser.getId())) {
+            if (!idToDelete.equals(requestingUser.id())) {
                 throw new org.springframework.security.access.AccessDeniedException("User can only delete their own account.");
             }
-            userRepository.delete(userToDelete);
         }
+        // claims-only authentication never reads the users row, so the cutoff must outlive it
+        tokenRevocationService.revokeAllTokensOfDeletedUser(userToDelete);
+        userRepository.delete(userToDelete);
     }
 
     @Transactional
-    public void linkOAuthAccount(User user, String provider, String code) {
+    public void linkOAuthAccount(Long userId, String provider, String code) {
+        User user = findUserById(userId);
         ClientRegistration clientRegistration = clientRegistrationRepository.findByRegistrationId(provider.toLowerCase());
         if (clientRegistration == null) {
             throw new IllegalArgumentException("Unknown provider: " + provider);
@@ -246,9 +280,9 @@ public class UserService implements UserDetailsService {
     }
 
     @Transactional
-    public void unlinkOAuthAccount(User user, String provider) {
+    public void unlinkOAuthAccount(Long userId, String provider) {
         OAuthProvider oAuthProvider = OAuthProvider.valueOf(provider.toUpperCase());
-        removeProviderFromUser(user, oAuthProvider);
+        removeProviderFromUser(userRepository.getReferenceById(userId), oAuthProvider);
     }
 
     public Optional<User> findByUsernameOrEmail(String usernameOrEmail) {
@@ -275,8 +309,8 @@ public class UserService implements UserDetailsService {
         userProviderRepository.deleteByUserAndProvider(user, provider);
     }
 
-    public List<UserProvider> getUserProviders(User user) {
-        return userProviderRepository.findByUser(user);
+    public List<UserProvider> getUserProviders(Long userId) {
+        return userProviderRepository.findByUserId(userId);
     }
 
     public User registerOrUpdateOAuthUser(OAuthProvider provider, String providerId, String email, String name) {
@@ -293,7 +327,7 @@ public class UserService implements UserDetailsService {
         }
 
         String usernameCandidate = generateUniqueUsername(email, provider, providerId);
-        String randomPassword = passwordEncoder.encode(UUID.randomUUID().toString());
+        String randomPassword = passwordEncoder.encode(tokenGenerator.newToken());
 
         User user = new User();
         user.setUsername(usernameCandidate);
@@ -321,4 +355,21 @@ public class UserService implements UserDetailsService {
         }
         return cand;
     }
+
+    /**
+     * A freshly issued code may match a recently cached miss; clear it once the code is visible
+     * to other transactions, so a lookup racing with this one cannot re-cache it.
+     */
+    private void forgetMissAfterCommit(Kind kind, String code) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            negativeLookupCache.forget(kind, code);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                negativeLookupCache.forget(kind, code);
+            }
+        });
+    }
 }
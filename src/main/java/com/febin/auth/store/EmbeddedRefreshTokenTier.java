@@ -0,0 +1,152 @@
+package com.febin.auth.store;
+
+import com.febin.auth.config.JwtProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * In-process {@link RefreshTokenTier}, standing in for a shared key-value store on single-instance
+ * deployments and in tests.
+ * <p>
+ * Token entries and each kind of revocation marker are bounded by {@code jwt.refresh-store.cache-max-size}:
+ * when full, expired entries are swept first and then an arbitrary tenth is dropped. Dropping live
+ * markers also drops every cached token, since a token cached before its revocation is only known to
+ * be revoked through the marker; tokens read back afterwards carry the revocation from MySQL (or the
+ * store's queue).
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.refresh-store.type", havingValue = "tiered")
+public class EmbeddedRefreshTokenTier implements RefreshTokenTier {
+
+    private final int maxSize;
+    private final Map<ByteBuffer, StoredRefreshToken> tokens = new ConcurrentHashMap<>();
+    private final Map<ByteBuffer, Instant> revokedFamilies = new ConcurrentHashMap<>();
+    private final Map<Long, UserMarker> revokedUsers = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder markerEvictions = new LongAdder();
+
+    public EmbeddedRefreshTokenTier(JwtProperties jwtProperties) {
+        this.maxSize = Math.max(1, jwtProperties.getRefreshStore().getCacheMaxSize());
+    }
+
+    @Override
+    public StoredRefreshToken get(byte[] tokenHash) {
+        return tokens.get(ByteBuffer.wrap(tokenHash));
+    }
+
+    @Override
+    public StoredRefreshToken putIfAbsent(StoredRefreshToken token) {
+        if (tokens.size() >= maxSize) makeRoom();
+        StoredRefreshToken existing = tokens.putIfAbsent(ByteBuffer.wrap(token.tokenHash()), token);
+        return existing != null ? existing : token;
+    }
+
+    @Override
+    public void put(StoredRefreshToken token) {
+        if (tokens.size() >= maxSize) makeRoom();
+        tokens.put(ByteBuffer.wrap(token.tokenHash()), token);
+    }
+
+    @Override
+    public boolean replace(StoredRefreshToken expected, StoredRefreshToken updated) {
+        return tokens.replace(ByteBuffer.wrap(expected.tokenHash()), expected, updated);
+    }
+
+    @Override
+    public void revokeFamily(byte[] familyId, Instant keepUntil) {
+        if (revokedFamilies.size() >= maxSize) makeRoomForMarkers(revokedFamilies, until -> !until.isAfter(Instant.now()));
+        revokedFamilies.merge(ByteBuffer.wrap(familyId.clone()), keepUntil, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    @Override
+    public boolean isFamilyRevoked(byte[] familyId) {
+        return revokedFamilies.containsKey(ByteBuffer.wrap(familyId));
+    }
+
+    @Override
+    public void revokeUser(Long userId, Instant at, Instant keepUntil) {
+        if (revokedUsers.size() >= maxSize) makeRoomForMarkers(revokedUsers, marker -> !marker.keepUntil.isAfter(Instant.now()));
+        revokedUsers.merge(userId, new UserMarker(at, keepUntil),
+                (a, b) -> new UserMarker(a.at.isAfter(b.at) ? a.at : b.at, a.keepUntil.isAfter(b.keepUntil) ? a.keepUntil : b.keepUntil));
+    }
+
+    @Override
+    public Instant userRevokedAt(Long userId) {
+        UserMarker marker = revokedUsers.get(userId);
+        return marker == null ? null : marker.at;
+    }
+
+    @Override
+    public int size() {
+        return tokens.size();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getMarkerEvictionCount() {
+        return markerEvictions.sum();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-store.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        tokens.values().removeIf(t -> !t.expiresAt().isAfter(now));
+        revokedFamilies.values().removeIf(until -> !until.isAfter(now));
+        revokedUsers.values().removeIf(marker -> !marker.keepUntil.isAfter(now));
+    }
+
+    private void makeRoom() {
+        Instant now = Instant.now();
+        Iterator<StoredRefreshToken> it = tokens.values().iterator();
+        while (it.hasNext()) {
+            if (!it.next().expiresAt().isAfter(now)) {
+                it.remove();
+                evictions.increment();
+            }
+        }
+        if (tokens.size() < maxSize) return;
+
+        // still full of live tokens: drop an arbitrary tenth, they are read back from MySQL when presented
+        int toEvict = Math.max(1, maxSize / 10);
+        it = tokens.values().iterator();
+        while (toEvict > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+            toEvict--;
+        }
+    }
+
+    private <K, V> void makeRoomForMarkers(Map<K, V> markers, Predicate<V> expired) {
+        markers.values().removeIf(expired);
+        if (markers.size() < maxSize) return;
+
+        // tokens first: none may outlive a marker that revoked it
+        evictions.add(tokens.size());
+        tokens.clear();
+        int toEvict = Math.max(1, maxSize / 10);
+        Iterator<V> it = markers.values().iterator();
+        while (toEvict > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+            markerEvictions.increment();
+            toEvict--;
+        }
+    }
+
+    // ------------ Helper classes ------------
+
+    private record UserMarker(Instant at, Instant keepUntil) {
+    }
+}
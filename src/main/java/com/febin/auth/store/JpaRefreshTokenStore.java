@@ -0,0 +1,89 @@
+package com.febin.auth.store;
+
+import com.febin.auth.entity.RefreshToken;
+import com.febin.auth.repository.RefreshTokenRepository;
+import com.febin.auth.repository.UserRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link RefreshTokenStore} writing straight to refresh_tokens inside the caller's transaction.
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.refresh-store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaRefreshTokenStore implements RefreshTokenStore {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+
+    public JpaRefreshTokenStore(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    @Transactional
+    public void save(StoredRefreshToken token) {
+        RefreshToken rt = new RefreshToken();
+        rt.setTokenHash(token.tokenHash());
+        rt.setFamilyId(token.familyId());
+        rt.setUser(userRepository.getReferenceById(token.userId()));
+        rt.setExpiryDate(token.expiresAt());
+        rt.setCreatedAt(token.createdAt());
+        rt.setRevoked(token.revoked());
+        refreshTokenRepository.save(rt);
+    }
+
+    /**
+     * One conditional UPDATE consumes the token, then one read (with its user, which stays in
+     * the persistence context for the caller) tells the other outcomes apart.
+     */
+    @Override
+    @Transactional
+    public RotationResult rotate(byte[] tokenHash, Instant now) {
+        boolean rotated = refreshTokenRepository.rotate(tokenHash, now) == 1;
+        RefreshToken rt = refreshTokenRepository.findWithUserByTokenHash(tokenHash).orElse(null);
+        if (rt == null) return RotationResult.NOT_FOUND;
+
+        StoredRefreshToken token = StoredRefreshToken.of(rt);
+        if (rotated) return new RotationResult(RotationResult.Outcome.ROTATED, token);
+        if (rt.isRevoked() && rt.getExpiryDate().isAfter(now)) {
+            return new RotationResult(RotationResult.Outcome.REUSED, token);
+        }
+        return new RotationResult(RotationResult.Outcome.EXPIRED, token);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<StoredRefreshToken> find(byte[] tokenHash) {
+        return refreshTokenRepository.findWithUserByTokenHash(tokenHash).map(StoredRefreshToken::of);
+    }
+
+    @Override
+    @Transactional
+    public void revokeFamily(byte[] familyId) {
+        refreshTokenRepository.revokeFamily(familyId);
+    }
+
+    @Override
+    @Transactional
+    public boolean revokeFamilyOfUser(byte[] familyId, Long userId) {
+        return refreshTokenRepository.revokeFamilyOfUser(familyId, userId) > 0;
+    }
+
+    @Override
+    @Transactional
+    public void revokeAllForUser(Long userId, Instant at) {
+        refreshTokenRepository.revokeAllByUserId(userId);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return Map.of("type", "jpa");
+    }
+}
@@ -0,0 +1,68 @@
+package com.febin.auth.store;
+
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * A change made in the tier that still has to reach refresh_tokens. Every write is idempotent,
+ * so replaying one that was already applied (after a crash) is harmless.
+ * <p>
+ * Writes are journaled as one line of space-separated fields each.
+ */
+sealed interface PendingWrite {
+
+    Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    Base64.Decoder B64_DECODER = Base64.getUrlDecoder();
+
+    String encode();
+
+    record Create(StoredRefreshToken token) implements PendingWrite {
+        @Override
+        public String encode() {
+            return "C " + B64.encodeToString(token.tokenHash()) + " " + token.userId() + " "
+                    + B64.encodeToString(token.familyId()) + " " + token.expiresAt().toEpochMilli() + " "
+                    + token.createdAt().toEpochMilli();
+        }
+    }
+
+    record RevokeToken(byte[] tokenHash) implements PendingWrite {
+        @Override
+        public String encode() {
+            return "T " + B64.encodeToString(tokenHash);
+        }
+    }
+
+    record RevokeFamily(byte[] familyId) implements PendingWrite {
+        @Override
+        public String encode() {
+            return "F " + B64.encodeToString(familyId);
+        }
+    }
+
+    record RevokeUser(Long userId, Instant at) implements PendingWrite {
+        @Override
+        public String encode() {
+            return "U " + userId + " " + at.toEpochMilli();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the line is not a journaled write (e.g. torn by a crash)
+     */
+    static PendingWrite decode(String line) {
+        String[] f = line.split(" ");
+        try {
+            return switch (f[0]) {
+                case "C" -> new Create(new StoredRefreshToken(B64_DECODER.decode(f[1]), Long.parseLong(f[2]),
+                        B64_DECODER.decode(f[3]), Instant.ofEpochMilli(Long.parseLong(f[4])),
+                        Instant.ofEpochMilli(Long.parseLong(f[5])), false));
+                case "T" -> new RevokeToken(B64_DECODER.decode(f[1]));
+                case "F" -> new RevokeFamily(B64_DECODER.decode(f[1]));
+                case "U" -> new RevokeUser(Long.parseLong(f[1]), Instant.ofEpochMilli(Long.parseLong(f[2])));
+                default -> throw new IllegalArgumentException("Unknown journal entry: " + f[0]);
+            };
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated journal entry", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.febin.auth.store;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Storage of database-mode refresh tokens, keyed by the SHA-256 of the token.
+ * <p>
+ * {@link JpaRefreshTokenStore} (the default) writes every change to refresh_tokens as it happens;
+ * {@link TieredRefreshTokenStore} serves the hot path from memory and persists in the background.
+ * Either way refresh_tokens ends up holding every token, so session listing and the purge job
+ * keep querying it directly.
+ */
+public interface RefreshTokenStore {
+
+    void save(StoredRefreshToken token);
+
+    /**
+     * Consume a token. Of two concurrent calls with the same live token exactly one gets ROTATED.
+     */
+    RotationResult rotate(byte[] tokenHash, Instant now);
+
+    Optional<StoredRefreshToken> find(byte[] tokenHash);
+
+    /**
+     * Revoke every token of a session (login).
+     */
+    void revokeFamily(byte[] familyId);
+
+    /**
+     * Revoke a session of the given user; returns false if the user had no live token in it.
+     */
+    boolean revokeFamilyOfUser(byte[] familyId, Long userId);
+
+    /**
+     * Revoke every token the user was issued up to {@code at}.
+     */
+    void revokeAllForUser(Long userId, Instant at);
+
+    default Map<String, Object> getStats() {
+        return Map.of();
+    }
+}
@@ -0,0 +1,42 @@
+package com.febin.auth.store;
+
+import java.time.Instant;
+
+/**
+ * The fast tier of {@link TieredRefreshTokenStore}: a bounded key-value view of recent tokens plus
+ * session and user revocation markers. It may drop token entries at any time (they are read back
+ * from MySQL). It may drop a marker before the given expiry only together with every token entry it
+ * could cover, since a dropped marker's revocation is then read from MySQL or the store's queue.
+ * <p>
+ * {@link EmbeddedRefreshTokenTier} keeps everything in this JVM. A shared implementation (e.g. Redis)
+ * must make {@link #replace} atomic across instances.
+ */
+public interface RefreshTokenTier {
+
+    StoredRefreshToken get(byte[] tokenHash);
+
+    /**
+     * Store the token unless an entry exists; returns the entry that is now cached.
+     */
+    StoredRefreshToken putIfAbsent(StoredRefreshToken token);
+
+    void put(StoredRefreshToken token);
+
+    /**
+     * Replace {@code expected} with {@code updated} only if the cached entry is still {@code expected}.
+     */
+    boolean replace(StoredRefreshToken expected, StoredRefreshToken updated);
+
+    void revokeFamily(byte[] familyId, Instant keepUntil);
+
+    boolean isFamilyRevoked(byte[] familyId);
+
+    void revokeUser(Long userId, Instant at, Instant keepUntil);
+
+    /**
+     * When all of the user's tokens were last revoked, or null.
+     */
+    Instant userRevokedAt(Long userId);
+
+    int size();
+}
@@ -0,0 +1,20 @@
+package com.febin.auth.store;
+
+/**
+ * Outcome of {@link RefreshTokenStore#rotate}; {@code token} is null only for {@link Outcome#NOT_FOUND}.
+ */
+public record RotationResult(Outcome outcome, StoredRefreshToken token) {
+
+    public enum Outcome {
+        /** The token was live and has now been consumed by this call. */
+        ROTATED,
+        /** The token was already consumed or revoked but has not expired: treat as a replay. */
+        REUSED,
+        /** The token has expired. */
+        EXPIRED,
+        /** No such token. */
+        NOT_FOUND
+    }
+
+    static final RotationResult NOT_FOUND = new RotationResult(Outcome.NOT_FOUND, null);
+}
@@ -0,0 +1,22 @@
+package com.febin.auth.store;
+
+import com.febin.auth.entity.RefreshToken;
+
+import java.time.Instant;
+
+/**
+ * A refresh token as seen through {@link RefreshTokenStore}: the SHA-256 of the token, its session
+ * (family) and owner, and its lifetime.
+ */
+public record StoredRefreshToken(byte[] tokenHash, Long userId, byte[] familyId,
+                                 Instant expiresAt, Instant createdAt, boolean revoked) {
+
+    static StoredRefreshToken of(RefreshToken rt) {
+        return new StoredRefreshToken(rt.getTokenHash(), rt.getUser().getId(), rt.getFamilyId(),
+                rt.getExpiryDate(), rt.getCreatedAt(), rt.isRevoked());
+    }
+
+    StoredRefreshToken asRevoked() {
+        return revoked ? this : new StoredRefreshToken(tokenHash, userId, familyId, expiresAt, createdAt, true);
+    }
+}
@@ -0,0 +1,560 @@
+package com.febin.auth.store;
+
+import com.febin.auth.config.JwtProperties;
+import com.febin.auth.config.JwtProperties.RefreshStore.Durability;
+import com.febin.auth.entity.RefreshToken;
+import com.febin.auth.exception.StoreUnavailableException;
+import com.febin.auth.repository.RefreshTokenRepository;
+import com.febin.auth.repository.UserRepository;
+import com.febin.auth.service.LeaseScheduler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link RefreshTokenStore} serving logins, refreshes and logouts from a {@link RefreshTokenTier}
+ * and writing the changes to refresh_tokens in batches (write-behind).
+ * <p>
+ * Durability is set by {@code jwt.refresh-store.durability}. Unless it is WRITE_THROUGH, every write
+ * is appended to a local {@link WriteBehindJournal} (or only queued, with ASYNC) and a background
+ * thread flushes the queue every {@code flush-interval}. Journal segments are deleted once their
+ * writes are committed; on startup, leftover segments are replayed into MySQL before serving.
+ * <p>
+ * A token missing from the tier is read back from MySQL and overlaid with the queued writes that
+ * touch it, so a read never misses a write that is still queued and never waits for a flush. When
+ * {@code max-pending} writes are queued, writers wait up to {@code max-pending-wait} for the flusher
+ * to catch up and then fail with {@link StoreUnavailableException}. Session listing and the session
+ * cap query MySQL directly and may lag by one flush interval.
+ * <p>
+ * Single node only: the tier and the rotation locks live in this JVM, so two instances could both
+ * rotate the same token. The store holds the {@value #LEASE_NAME} lease of {@link LeaseScheduler}
+ * for as long as it runs, fails startup if another node holds it, and refuses rotations if the lease
+ * is lost. Deploy by stopping the old instance first.
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.refresh-store.type", havingValue = "tiered")
+public class TieredRefreshTokenStore implements RefreshTokenStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(TieredRefreshTokenStore.class);
+    private static final int LOCK_STRIPES = 64;
+    static final String LEASE_NAME = "tiered-refresh-store";
+
+    private final RefreshTokenTier tier;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final LeaseScheduler leaseScheduler;
+    private final TransactionTemplate joinTransaction;
+    private final TransactionTemplate newTransaction;
+    private final Durability durability;
+    private final long refreshTokenValidityMs;
+    private final long flushIntervalMs;
+    private final int flushBatchSize;
+    private final int maxPending;
+    private final long maxPendingWaitNanos;
+    private final Path journalDir;
+    private final WriteBehindJournal journal;
+
+    // rotations of one token are serialized on this node, including the read-through on a tier miss
+    private final Object[] rotationLocks = new Object[LOCK_STRIPES];
+
+    // guards journal appends and the queue, so the journal order is the flush order
+    private final Object writeLock = new Object();
+    private List<PendingWrite> pending = new ArrayList<>();
+    // what the queued and in-flight writes change, so a tier miss is answered without flushing;
+    // entries are dropped once the write that last touched them (by sequence number) is committed
+    private long writeSeq;
+    private final Map<ByteBuffer, QueuedToken> queuedTokens = new HashMap<>();
+    private final Map<ByteBuffer, Long> queuedFamilyRevocations = new HashMap<>();
+    private final Map<Long, QueuedUserRevocation> queuedUserRevocations = new HashMap<>();
+    private long committedSeq;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // written but not yet committed; retried as a whole (every write is idempotent)
+    private final List<PendingWrite> inFlight = new ArrayList<>();
+    private final List<Path> inFlightSegments = new ArrayList<>();
+    private long inFlightSeq;
+
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedWrites = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong droppedWrites = new AtomicLong();
+    private final AtomicLong rejectedWrites = new AtomicLong();
+    private final AtomicLong readThroughs = new AtomicLong();
+    private volatile long recoveredWrites;
+    private volatile Instant lastFlushAt;
+
+    public TieredRefreshTokenStore(RefreshTokenTier tier,
+                                   RefreshTokenRepository refreshTokenRepository,
+                                   UserRepository userRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   LeaseScheduler leaseScheduler,
+                                   JwtProperties jwtProperties) {
+        JwtProperties.RefreshStore config = jwtProperties.getRefreshStore();
+        this.tier = tier;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.leaseScheduler = leaseScheduler;
+        this.joinTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.durability = config.getDurability();
+        this.refreshTokenValidityMs = jwtProperties.getRefreshTokenValidityMs();
+        this.flushIntervalMs = Math.max(1, config.getFlushInterval().toMillis());
+        this.flushBatchSize = Math.max(1, config.getFlushBatchSize());
+        this.maxPending = Math.max(1, config.getMaxPending());
+        this.maxPendingWaitNanos = config.getMaxPendingWait().toNanos();
+        this.journalDir = Path.of(config.getJournalDir());
+        this.journal = switch (durability) {
+            case JOURNAL_FSYNC -> new WriteBehindJournal(journalDir, true);
+            case JOURNAL -> new WriteBehindJournal(journalDir, false);
+            default -> null;
+        };
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            rotationLocks[i] = new Object();
+        }
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "refresh-store-flush");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Take the single-node lease, replay journal segments left by a previous run (crash recovery),
+     * then start flushing.
+     */
+    @PostConstruct
+    public void start() {
+        if (!leaseScheduler.tryAcquire(LEASE_NAME)) {
+            throw new IllegalStateException("The tiered refresh store is single-node and another instance holds the "
+                    + LEASE_NAME + " lease; stop it first or use jwt.refresh-store.type=jpa");
+        }
+        // also when journaling has since been switched off, so nothing written before is lost
+        WriteBehindJournal leftover = journal != null ? journal
+                : Files.isDirectory(journalDir) ? new WriteBehindJournal(journalDir, false) : null;
+        if (leftover != null) {
+            try {
+                recover(leftover);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot replay refresh store journal in " + journalDir, e);
+            }
+        }
+        if (durability != Durability.WRITE_THROUGH) {
+            flusher.scheduleWithFixedDelay(this::scheduledFlush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void recover(WriteBehindJournal leftover) throws IOException {
+        List<Path> segments = leftover.segments();
+        if (segments.isEmpty()) return;
+        List<PendingWrite> writes = new ArrayList<>();
+        for (Path segment : segments) {
+            writes.addAll(WriteBehindJournal.read(segment));
+        }
+        applyAll(writes);
+        segments.forEach(WriteBehindJournal::delete);
+        recoveredWrites = writes.size();
+        logger.info("Replayed {} refresh store writes from {} journal segments", writes.size(), segments.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdownNow();
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Final refresh store flush failed, writes stay in the journal: {}", e.getMessage());
+        }
+        if (journal != null) {
+            synchronized (writeLock) {
+                journal.close();
+            }
+        }
+    }
+
+    @Override
+    public void save(StoredRefreshToken token) {
+        // queued before the tier is touched, so a write rejected by a full queue changes nothing
+        write(new PendingWrite.Create(token));
+        tier.put(token);
+    }
+
+    @Override
+    public RotationResult rotate(byte[] tokenHash, Instant now) {
+        if (!leaseScheduler.isHeld(LEASE_NAME)) {
+            // another node may have taken over and be rotating from its own tier
+            throw new StoreUnavailableException("Refresh store lease lost");
+        }
+        synchronized (rotationLocks[Math.floorMod(tokenHash[0], LOCK_STRIPES)]) {
+            StoredRefreshToken token = tier.get(tokenHash);
+            if (token == null) {
+                token = readThrough(tokenHash);
+                if (token == null) return RotationResult.NOT_FOUND;
+            }
+            if (!token.expiresAt().isAfter(now)) {
+                return new RotationResult(RotationResult.Outcome.EXPIRED, token);
+            }
+            if (token.revoked() || isRevokedByMarker(token)) {
+                return new RotationResult(RotationResult.Outcome.REUSED, token);
+            }
+            write(new PendingWrite.RevokeToken(tokenHash));
+            if (!tier.replace(token, token.asRevoked())) {
+                // evicted or changed under us (a shared tier); the queued revocation is authoritative
+                tier.put(token.asRevoked());
+            }
+            return new RotationResult(RotationResult.Outcome.ROTATED, token);
+        }
+    }
+
+    @Override
+    public Optional<StoredRefreshToken> find(byte[] tokenHash) {
+        StoredRefreshToken token = tier.get(tokenHash);
+        if (token == null) token = readThrough(tokenHash);
+        if (token == null) return Optional.empty();
+        return Optional.of(isRevokedByMarker(token) ? token.asRevoked() : token);
+    }
+
+    @Override
+    public void revokeFamily(byte[] familyId) {
+        write(new PendingWrite.RevokeFamily(familyId));
+        tier.revokeFamily(familyId, Instant.now().plusMillis(refreshTokenValidityMs));
+    }
+
+    /**
+     * Ownership is checked against the queued tokens and the family's live rows in MySQL; the
+     * revocation itself is queued like any other write, so nothing is flushed.
+     */
+    @Override
+    public boolean revokeFamilyOfUser(byte[] familyId, Long userId) {
+        if (!hasLiveToken(familyId, userId)) return false;
+        revokeFamily(familyId);
+        return true;
+    }
+
+    private boolean hasLiveToken(byte[] familyId, Long userId) {
+        if (tier.isFamilyRevoked(familyId)) return false;
+        Instant now = Instant.now();
+        while (true) {
+            long seenCommitted;
+            synchronized (writeLock) {
+                if (queuedFamilyRevocations.containsKey(ByteBuffer.wrap(familyId))) return false;
+                for (QueuedToken queued : queuedTokens.values()) {
+                    StoredRefreshToken token = queued.token();
+                    if (token != null && !queued.revoked() && userId.equals(token.userId())
+                            && Arrays.equals(familyId, token.familyId()) && isLive(token, now)) {
+                        return true;
+                    }
+                }
+                seenCommitted = committedSeq;
+            }
+            List<StoredRefreshToken> rows = refreshTokenRepository.findActiveByFamilyIdAndUserId(familyId, userId, now)
+                    .stream().map(StoredRefreshToken::of).toList();
+            synchronized (writeLock) {
+                // a flush committed queued writes while MySQL was read
+                if (committedSeq != seenCommitted) continue;
+                for (StoredRefreshToken token : rows) {
+                    QueuedToken queued = queuedTokens.get(ByteBuffer.wrap(token.tokenHash()));
+                    if ((queued == null || !queued.revoked()) && isLive(token, now)) return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    // called holding writeLock
+    private boolean isLive(StoredRefreshToken token, Instant now) {
+        return token.expiresAt().isAfter(now) && !isRevokedByQueuedWrite(token) && !isRevokedByMarker(token);
+    }
+
+    @Override
+    public void revokeAllForUser(Long userId, Instant at) {
+        write(new PendingWrite.RevokeUser(userId, at));
+        tier.revokeUser(userId, at, at.plusMillis(refreshTokenValidityMs));
+    }
+
+    /**
+     * Write everything queued so far to MySQL. Called by the background thread, when the queue is
+     * full and on shutdown. A batch left by a failed flush is retried before the queue is
+     * taken, so at most one batch is in flight and a full queue stays full while MySQL is down.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (!inFlight.isEmpty()) applyInFlight();
+            synchronized (writeLock) {
+                if (pending.isEmpty()) return;
+                inFlight.addAll(pending);
+                pending = new ArrayList<>();
+                inFlightSeq = writeSeq;
+                Path segment = journal != null ? journal.roll() : null;
+                if (segment != null) inFlightSegments.add(segment);
+                writeLock.notifyAll();
+            }
+            applyInFlight();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void applyInFlight() {
+        try {
+            applyAll(inFlight);
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            throw e;
+        }
+        flushes.incrementAndGet();
+        flushedWrites.addAndGet(inFlight.size());
+        lastFlushAt = Instant.now();
+        inFlight.clear();
+        inFlightSegments.forEach(WriteBehindJournal::delete);
+        inFlightSegments.clear();
+        synchronized (writeLock) {
+            committedSeq = inFlightSeq;
+            queuedTokens.values().removeIf(q -> q.seq() <= committedSeq);
+            queuedFamilyRevocations.values().removeIf(seq -> seq <= committedSeq);
+            queuedUserRevocations.values().removeIf(q -> q.seq() <= committedSeq);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("type", "tiered");
+        stats.put("durability", durability);
+        stats.put("tierSize", tier.size());
+        synchronized (writeLock) {
+            stats.put("pendingWrites", pending.size());
+        }
+        stats.put("flushes", flushes.get());
+        stats.put("flushedWrites", flushedWrites.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("droppedWrites", droppedWrites.get());
+        stats.put("rejectedWrites", rejectedWrites.get());
+        stats.put("readThroughs", readThroughs.get());
+        stats.put("recoveredWrites", recoveredWrites);
+        stats.put("lastFlushAt", lastFlushAt);
+        return stats;
+    }
+
+    private void scheduledFlush() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Refresh store flush failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    private void write(PendingWrite write) {
+        if (durability == Durability.WRITE_THROUGH) {
+            joinTransaction.executeWithoutResult(status -> apply(List.of(write)));
+            return;
+        }
+        synchronized (writeLock) {
+            awaitRoom();
+            if (journal != null) journal.append(write);
+            pending.add(write);
+            index(write, ++writeSeq);
+        }
+    }
+
+    /**
+     * Backpressure: with the queue full, ask the flusher to run now and wait for it to take the
+     * queue. Called holding {@code writeLock}, which the wait releases.
+     */
+    private void awaitRoom() {
+        if (pending.size() < maxPending) return;
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::scheduledFlush);
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+            }
+        }
+        long deadline = System.nanoTime() + maxPendingWaitNanos;
+        while (pending.size() >= maxPending) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                rejectedWrites.incrementAndGet();
+                throw new StoreUnavailableException("Refresh token store is busy, please retry");
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(writeLock, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StoreUnavailableException("Interrupted while waiting for the refresh token store");
+            }
+        }
+    }
+
+    private void index(PendingWrite write, long seq) {
+        switch (write) {
+            case PendingWrite.Create c ->
+                    queuedTokens.put(ByteBuffer.wrap(c.token().tokenHash()), new QueuedToken(c.token(), false, seq));
+            case PendingWrite.RevokeToken t -> queuedTokens.merge(ByteBuffer.wrap(t.tokenHash()),
+                    new QueuedToken(null, true, seq), (old, now) -> new QueuedToken(old.token(), true, seq));
+            case PendingWrite.RevokeFamily f -> queuedFamilyRevocations.put(ByteBuffer.wrap(f.familyId()), seq);
+            case PendingWrite.RevokeUser u -> queuedUserRevocations.merge(u.userId(), new QueuedUserRevocation(u.at(), seq),
+                    (old, now) -> new QueuedUserRevocation(old.at().isAfter(now.at()) ? old.at() : now.at(), seq));
+        }
+    }
+
+    /**
+     * A token the tier does not have: taken from the queue if its insert is not committed yet,
+     * otherwise from MySQL, with queued revocations applied either way. If a flush commits
+     * (and forgets) queued writes while MySQL is being read, the read is repeated.
+     */
+    private StoredRefreshToken readThrough(byte[] tokenHash) {
+        readThroughs.incrementAndGet();
+        ByteBuffer key = ByteBuffer.wrap(tokenHash);
+        while (true) {
+            QueuedToken queued;
+            long seenCommitted;
+            synchronized (writeLock) {
+                queued = queuedTokens.get(key);
+                seenCommitted = committedSeq;
+            }
+            StoredRefreshToken token = queued != null && queued.token() != null ? queued.token()
+                    : refreshTokenRepository.findWithUserByTokenHash(tokenHash).map(StoredRefreshToken::of).orElse(null);
+            synchronized (writeLock) {
+                if (committedSeq != seenCommitted) continue;
+                if (token == null) return null;
+                if ((queued != null && queued.revoked()) || isRevokedByQueuedWrite(token)) token = token.asRevoked();
+            }
+            return tier.putIfAbsent(token);
+        }
+    }
+
+    // called holding writeLock
+    private boolean isRevokedByQueuedWrite(StoredRefreshToken token) {
+        if (queuedFamilyRevocations.containsKey(ByteBuffer.wrap(token.familyId()))) return true;
+        QueuedUserRevocation user = queuedUserRevocations.get(token.userId());
+        return user != null && !token.createdAt().isAfter(user.at());
+    }
+
+    private boolean isRevokedByMarker(StoredRefreshToken token) {
+        if (tier.isFamilyRevoked(token.familyId())) return true;
+        Instant userRevokedAt = tier.userRevokedAt(token.userId());
+        return userRevokedAt != null && !token.createdAt().isAfter(userRevokedAt);
+    }
+
+    /**
+     * Apply writes in order, one transaction per chunk. If a chunk fails, its writes are retried one
+     * by one: ones that still fail while others succeed (e.g. a token of a user deleted meanwhile)
+     * are dropped, and if none succeeds the database is assumed unavailable and the chunk is kept.
+     */
+    private void applyAll(List<PendingWrite> writes) {
+        for (int from = 0; from < writes.size(); from += flushBatchSize) {
+            List<PendingWrite> chunk = writes.subList(from, Math.min(writes.size(), from + flushBatchSize));
+            try {
+                newTransaction.executeWithoutResult(status -> apply(chunk));
+            } catch (RuntimeException e) {
+                applyOneByOne(chunk, e);
+            }
+        }
+    }
+
+    private void applyOneByOne(List<PendingWrite> chunk, RuntimeException chunkFailure) {
+        List<PendingWrite> failed = new ArrayList<>();
+        for (PendingWrite write : chunk) {
+            try {
+                newTransaction.executeWithoutResult(status -> apply(List.of(write)));
+            } catch (RuntimeException e) {
+                failed.add(write);
+            }
+        }
+        if (failed.size() == chunk.size()) throw chunkFailure;
+        for (PendingWrite write : failed) {
+            logger.warn("Dropping refresh store write that cannot be applied: {}", write.getClass().getSimpleName());
+        }
+        droppedWrites.addAndGet(failed.size());
+    }
+
+    /**
+     * Inserts first, so a revocation in the same chunk finds its token.
+     */
+    private void apply(List<PendingWrite> writes) {
+        List<StoredRefreshToken> creates = new ArrayList<>();
+        List<byte[]> revokedTokens = new ArrayList<>();
+        List<byte[]> revokedFamilies = new ArrayList<>();
+        List<PendingWrite.RevokeUser> revokedUsers = new ArrayList<>();
+        for (PendingWrite write : writes) {
+            switch (write) {
+                case PendingWrite.Create c -> creates.add(c.token());
+                case PendingWrite.RevokeToken t -> revokedTokens.add(t.tokenHash());
+                case PendingWrite.RevokeFamily f -> revokedFamilies.add(f.familyId());
+                case PendingWrite.RevokeUser u -> revokedUsers.add(u);
+            }
+        }
+
+        if (!creates.isEmpty()) {
+            // a replayed journal may contain tokens that were already inserted before the crash
+            Set<ByteBuffer> existing = new HashSet<>();
+            refreshTokenRepository.findExistingTokenHashes(creates.stream().map(StoredRefreshToken::tokenHash).toList())
+                    .forEach(hash -> existing.add(ByteBuffer.wrap(hash)));
+            List<RefreshToken> entities = new ArrayList<>();
+            for (StoredRefreshToken token : creates) {
+                if (!existing.add(ByteBuffer.wrap(token.tokenHash()))) continue;
+                RefreshToken rt = new RefreshToken();
+                rt.setTokenHash(token.tokenHash());
+                rt.setFamilyId(token.familyId());
+                rt.setUser(userRepository.getReferenceById(token.userId()));
+                rt.setExpiryDate(token.expiresAt());
+                rt.setCreatedAt(token.createdAt());
+                rt.setRevoked(false);
+                entities.add(rt);
+            }
+            refreshTokenRepository.saveAll(entities);
+            refreshTokenRepository.flush();
+        }
+        if (!revokedTokens.isEmpty()) refreshTokenRepository.revokeByTokenHashes(revokedTokens);
+        if (!revokedFamilies.isEmpty()) refreshTokenRepository.revokeFamilies(revokedFamilies);
+        for (PendingWrite.RevokeUser u : revokedUsers) {
+            refreshTokenRepository.revokeAllByUserIdCreatedBefore(u.userId(), u.at());
+        }
+    }
+
+    // ------------ Helper classes ------------
+
+    /**
+     * A queued insert ({@code token} set) and/or revocation of one token.
+     */
+    private record QueuedToken(StoredRefreshToken token, boolean revoked, long seq) {
+    }
+
+    private record QueuedUserRevocation(Instant at, long seq) {
+    }
+}
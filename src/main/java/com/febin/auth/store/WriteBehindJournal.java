@@ -0,0 +1,130 @@
+package com.febin.auth.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of {@link PendingWrite}s not yet flushed to MySQL, split into segments.
+ * <p>
+ * Each flush rolls to a new segment and deletes the old one once its writes are committed, so
+ * after a crash the segments left in the directory are exactly what may be missing from MySQL.
+ * Not thread-safe; {@link TieredRefreshTokenStore} serializes access.
+ */
+class WriteBehindJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindJournal.class);
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    private final Path dir;
+    private final boolean fsync;
+    private long nextSegment;
+    private Path currentPath;
+    private FileChannel current;
+
+    WriteBehindJournal(Path dir, boolean fsync) {
+        this.dir = dir;
+        this.fsync = fsync;
+        try {
+            Files.createDirectories(dir);
+            nextSegment = segments().stream().mapToLong(WriteBehindJournal::sequenceOf).max().orElse(0) + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open refresh store journal in " + dir, e);
+        }
+    }
+
+    /**
+     * Segments left over from a previous run, oldest first.
+     */
+    List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(PREFIX)
+                            && p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)))
+                    .toList();
+        }
+    }
+
+    /**
+     * Read a leftover segment. A torn last line (crash during append) is skipped.
+     */
+    static List<PendingWrite> read(Path segment) throws IOException {
+        List<PendingWrite> writes = new ArrayList<>();
+        for (String line : Files.readAllLines(segment, StandardCharsets.US_ASCII)) {
+            if (line.isBlank()) continue;
+            try {
+                writes.add(PendingWrite.decode(line));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Skipping unreadable journal entry in {}: {}", segment.getFileName(), e.getMessage());
+            }
+        }
+        return writes;
+    }
+
+    void append(PendingWrite write) {
+        try {
+            if (current == null) open();
+            ByteBuffer line = ByteBuffer.wrap((write.encode() + "\n").getBytes(StandardCharsets.US_ASCII));
+            while (line.hasRemaining()) current.write(line);
+            if (fsync) current.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to refresh store journal", e);
+        }
+    }
+
+    /**
+     * Close the current segment and return it (null if nothing was written since the last roll);
+     * the next append starts a new one.
+     */
+    Path roll() {
+        if (current == null) return null;
+        Path closed = currentPath;
+        close();
+        return closed;
+    }
+
+    static void delete(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            logger.warn("Could not delete journal segment {}: {}", segment, e.getMessage());
+        }
+    }
+
+    void close() {
+        if (current == null) return;
+        try {
+            current.close();
+        } catch (IOException e) {
+            logger.warn("Could not close journal segment {}: {}", currentPath, e.getMessage());
+        }
+        current = null;
+        currentPath = null;
+    }
+
+    private void open() throws IOException {
+        currentPath = dir.resolve(PREFIX + String.format("%019d", nextSegment++) + SUFFIX);
+        current = FileChannel.open(currentPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
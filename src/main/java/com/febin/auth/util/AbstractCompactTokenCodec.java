@@ -0,0 +1,161 @@
+package com.febin.auth.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.febin.auth.exception.TokenValidationException;
+import com.febin.auth.exception.TokenValidationException.Reason;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Shared compact-JWS handling for our purpose-built codecs.
+ * <p>
+ * Works directly on the token bytes: segments are located by scanning for dots, base64url
+ * segments are decoded from a buffer rather than split into Strings, and the payload is
+ * mapped straight onto {@link AccessTokenClaims}. Subclasses only provide the header to emit
+ * and the signature primitive.
+ *
+ * @param <K> whatever the subclass signs with (a Mac, a key of the ring, ...)
+ */
+public abstract class AbstractCompactTokenCodec<K> implements TokenCodec {
+
+    private static final int MAX_TOKEN_LENGTH = 8192;
+
+    protected static final Base64.Encoder B64_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    protected static final Base64.Decoder B64_DECODER = Base64.getUrlDecoder();
+
+    protected final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Parsed JOSE header fields we care about.
+     */
+    protected record JwsHeader(String alg, String kid) {
+    }
+
+    /**
+     * The key to sign the next token with.
+     */
+    protected abstract K signingKey();
+
+    /**
+     * The base64url-encoded header announcing {@code key} on newly issued tokens.
+     */
+    protected abstract byte[] encodedHeader(K key);
+
+    /**
+     * Sign {@code input[0, length)} with {@code key}.
+     */
+    protected abstract byte[] sign(K key, byte[] input, int length);
+
+    /**
+     * Verify {@code signature} over {@code input[0, length)} for a token carrying {@code header}.
+     */
+    protected abstract boolean verify(JwsHeader header, byte[] input, int length, byte[] signature);
+
+    /**
+     * Return a pre-resolved header if the encoded header bytes are one we emit ourselves,
+     * so the common case does not need to decode and parse JSON. Null means "parse it".
+     */
+    protected JwsHeader knownHeader(byte[] token, int headerEnd) {
+        return null;
+    }
+
+    @Override
+    public String encode(AccessTokenClaims claims) {
+        byte[] payload;
+        try {
+            payload = mapper.writeValueAsBytes(claims);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize token claims", e);
+        }
+        K key = signingKey();
+        byte[] header = encodedHeader(key);
+        byte[] payloadB64 = B64_ENCODER.encode(payload);
+
+        int signingInputLength = header.length + 1 + payloadB64.length;
+        byte[] signingInput = new byte[signingInputLength];
+        System.arraycopy(header, 0, signingInput, 0, header.length);
+        signingInput[header.length] = '.';
+        System.arraycopy(payloadB64, 0, signingInput, header.length + 1, payloadB64.length);
+
+        byte[] signatureB64 = B64_ENCODER.encode(sign(key, signingInput, signingInputLength));
+
+        byte[] out = new byte[signingInputLength + 1 + signatureB64.length];
+        System.arraycopy(signingInput, 0, out, 0, signingInputLength);
+        out[signingInputLength] = '.';
+        System.arraycopy(signatureB64, 0, out, signingInputLength + 1, signatureB64.length);
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public AccessTokenClaims decode(String token) {
+        if (token == null || token.isEmpty() || token.length() > MAX_TOKEN_LENGTH) {
+            throw new TokenValidationException(Reason.MALFORMED, "Token is empty or too long");
+        }
+        byte[] bytes = token.getBytes(StandardCharsets.ISO_8859_1);
+        int firstDot = indexOf(bytes, 0);
+        int secondDot = firstDot < 0 ? -1 : indexOf(bytes, firstDot + 1);
+        if (secondDot < 0 || indexOf(bytes, secondDot + 1) >= 0) {
+            throw new TokenValidationException(Reason.MALFORMED, "Token is not a compact JWS");
+        }
+
+        JwsHeader header = knownHeader(bytes, firstDot);
+        if (header == null) header = parseHeader(bytes, firstDot);
+
+        byte[] signature = decodeSegment(bytes, secondDot + 1, bytes.length);
+        if (!verify(header, bytes, secondDot, signature)) {
+            throw new TokenValidationException(Reason.BAD_SIGNATURE, "Token signature does not match");
+        }
+
+        byte[] payload = decodeSegment(bytes, firstDot + 1, secondDot);
+        AccessTokenClaims claims;
+        try {
+            claims = mapper.readValue(payload, AccessTokenClaims.class);
+        } catch (IOException e) {
+            throw new TokenValidationException(Reason.MALFORMED, "Token payload is not valid JSON", e);
+        }
+        if (claims.expiresAt() <= 0 || claims.expiresAtMillis() <= System.currentTimeMillis()) {
+            throw new TokenValidationException(Reason.EXPIRED, "Token has expired");
+        }
+        return claims;
+    }
+
+    private JwsHeader parseHeader(byte[] bytes, int headerEnd) {
+        byte[] header = decodeSegment(bytes, 0, headerEnd);
+        try {
+            JsonNode node = mapper.readTree(header);
+            if (node == null || !node.isObject() || node.has("crit")) {
+                throw new TokenValidationException(Reason.MALFORMED, "Unsupported token header");
+            }
+            return new JwsHeader(node.path("alg").asText(null), node.path("kid").asText(null));
+        } catch (IOException e) {
+            throw new TokenValidationException(Reason.MALFORMED, "Token header is not valid JSON", e);
+        }
+    }
+
+    protected static byte[] decodeSegment(byte[] bytes, int from, int to) {
+        try {
+            ByteBuffer decoded = B64_DECODER.decode(ByteBuffer.wrap(bytes, from, to - from));
+            if (decoded.hasArray() && decoded.arrayOffset() == 0 && decoded.remaining() == decoded.array().length) {
+                return decoded.array();
+            }
+            byte[] copy = new byte[decoded.remaining()];
+            decoded.get(copy);
+            return copy;
+        } catch (IllegalArgumentException e) {
+            throw new TokenValidationException(Reason.MALFORMED, "Token segment is not valid base64url", e);
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == '.') return i;
+        }
+        return -1;
+    }
+}
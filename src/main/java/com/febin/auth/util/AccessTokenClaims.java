@@ -0,0 +1,41 @@
+package com.febin.auth.util;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * The fixed claim set carried by our access tokens.
+ * Times are in epoch seconds, as in the JWT spec.
+ * <p>
+ * Tokens of the compact profile ({@code jwt.token-profile=compact}) leave out username, email,
+ * iat and the role names; roles travel as the {@code r} bitmask instead (see {@link RoleTable}).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AccessTokenClaims(
+        @JsonProperty("sub") String subject,
+        @JsonProperty("id") Long id,
+        @JsonProperty("username") String username,
+        @JsonProperty("email") String email,
+        @JsonProperty("roles") List<String> roles,
+        @JsonProperty("r") Long roleMask,
+        @JsonProperty("iat") @JsonInclude(JsonInclude.Include.NON_DEFAULT) long issuedAt,
+        @JsonProperty("exp") long expiresAt,
+        @JsonProperty("jti") String tokenId,
+        @JsonProperty("ver") @JsonInclude(JsonInclude.Include.NON_DEFAULT) int tokenVersion) {
+
+    public long expiresAtMillis() {
+        return expiresAt * 1000L;
+    }
+
+    /**
+     * Copy of these claims with the role names filled in (for compact tokens, after decoding).
+     */
+    public AccessTokenClaims withRoles(List<String> roleNames) {
+        return new AccessTokenClaims(subject, id, username, email, roleNames, roleMask,
+                issuedAt, expiresAt, tokenId, tokenVersion);
+    }
+}
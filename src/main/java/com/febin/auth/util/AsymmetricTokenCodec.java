@@ -0,0 +1,70 @@
+package com.febin.auth.util;
+
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+
+/**
+ * ES256 / EdDSA codec signing with the active key of a {@link SigningKeyRing}.
+ * Tokens carry a {@code kid} header so any holder of the published JWKS can verify them.
+ */
+public class AsymmetricTokenCodec extends AbstractCompactTokenCodec<SigningKey> {
+
+    private static final ThreadLocal<Signature> ES256 = signature("SHA256withECDSAinP1363Format");
+    private static final ThreadLocal<Signature> EDDSA = signature("Ed25519");
+
+    private final SigningKeyRing keyRing;
+
+    public AsymmetricTokenCodec(SigningKeyRing keyRing) {
+        this.keyRing = keyRing;
+    }
+
+    @Override
+    protected SigningKey signingKey() {
+        return keyRing.activeKey();
+    }
+
+    @Override
+    protected byte[] encodedHeader(SigningKey key) {
+        return key.encodedHeader();
+    }
+
+    @Override
+    protected byte[] sign(SigningKey key, byte[] input, int length) {
+        try {
+            Signature sig = signatureFor(key.alg());
+            sig.initSign(key.privateKey());
+            sig.update(input, 0, length);
+            return sig.sign();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign token with key " + key.kid(), e);
+        }
+    }
+
+    @Override
+    protected boolean verify(JwsHeader header, byte[] input, int length, byte[] signature) {
+        SigningKey key = keyRing.findKey(header.kid());
+        if (key == null || !key.alg().equals(header.alg())) return false;
+        try {
+            Signature sig = signatureFor(key.alg());
+            sig.initVerify(key.publicKey());
+            sig.update(input, 0, length);
+            return sig.verify(signature);
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    private static Signature signatureFor(String alg) {
+        return SigningKey.ES256.equals(alg) ? ES256.get() : EDDSA.get();
+    }
+
+    private static ThreadLocal<Signature> signature(String jcaName) {
+        return ThreadLocal.withInitial(() -> {
+            try {
+                return Signature.getInstance(jcaName);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(jcaName + " not available", e);
+            }
+        });
+    }
+}
@@ -1,40 +1,44 @@
 package com.febin.auth.util;
 
+import com.febin.auth.config.AppCookieProperties;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 
 import java.util.Arrays;
 import java.util.Optional;
 
+/**
+ * Writes the auth cookies as exactly one {@code Set-Cookie} header each.
+ * <p>
+ * The attributes (Path, Secure, HttpOnly, SameSite from {@link AppCookieProperties}) are the
+ * same for every cookie, so they are rendered once at startup, as are the headers that clear
+ * the cookies on logout.
+ */
 @Component
 public class CookieUtil {
 
     public static final String ACCESS_TOKEN_COOKIE = "ATK";
     public static final String REFRESH_TOKEN_COOKIE = "RTK";
 
-    public Cookie createCookie(String name, String value, int maxAgeSec, boolean httpOnly, boolean secure, String sameSite) {
-        Cookie cookie = new Cookie(name, value);
-        cookie.setHttpOnly(httpOnly);
-        cookie.setSecure(secure);
-        cookie.setPath("/");
-        cookie.setMaxAge(maxAgeSec);
-        // SameSite can't be set via standard API prior to Servlet 4.0; append via header when adding
-        return cookie;
+    private final String attributes;
+    private final String deleteAccessTokenHeader;
+    private final String deleteRefreshTokenHeader;
+
+    public CookieUtil(AppCookieProperties cookieProperties) {
+        StringBuilder sb = new StringBuilder("; Path=/");
+        if (cookieProperties.isSecure()) sb.append("; Secure");
+        sb.append("; HttpOnly");
+        if (cookieProperties.getSameSite() != null) sb.append("; SameSite=").append(cookieProperties.getSameSite());
+        this.attributes = sb.toString();
+        this.deleteAccessTokenHeader = ACCESS_TOKEN_COOKIE + "=; Max-Age=0" + attributes;
+        this.deleteRefreshTokenHeader = REFRESH_TOKEN_COOKIE + "=; Max-Age=0" + attributes;
     }
 
-    public void addCookie(HttpServletResponse res, Cookie cookie, String sameSite) {
-        // Add cookie normally
-        res.addCookie(cookie);
-        // Also add Set-Cookie header to ensure SameSite attribute is present (safe approach)
-        StringBuilder sb = new StringBuilder();
-        sb.append(cookie.getName()).append("=").append(cookie.getValue()).append("; Path=").append(cookie.getPath());
-        if (cookie.getMaxAge() > 0) sb.append("; Max-Age=").append(cookie.getMaxAge());
-        if (cookie.getSecure()) sb.append("; Secure");
-        if (cookie.isHttpOnly()) sb.append("; HttpOnly");
-        if (sameSite != null) sb.append("; SameSite=").append(sameSite);
-        res.addHeader("Set-Cookie", sb.toString());
+    public void addCookie(HttpServletResponse res, String name, String value, long maxAgeSec) {
+        res.addHeader(HttpHeaders.SET_COOKIE, name + "=" + value + "; Max-Age=" + maxAgeSec + attributes);
     }
 
     public Optional<Cookie> getCookie(HttpServletRequest req, String name) {
@@ -42,13 +46,12 @@ public class CookieUtil {
         return Arrays.stream(req.getCookies()).filter(c -> c.getName().equals(name)).findFirst();
     }
 
-    public void deleteCookie(HttpServletResponse res, String name, String sameSite) {
-        Cookie cookie = new Cookie(name, null);
-        cookie.setPath("/");
-        cookie.setMaxAge(0);
-        res.addCookie(cookie);
-        // also set header for SameSite if needed
-        String header = name + "=; Path=/; Max-Age=0; HttpOnly; SameSite=" + sameSite;
-        res.addHeader("Set-Cookie", header);
+    public void deleteCookie(HttpServletResponse res, String name) {
+        String header = switch (name) {
+            case ACCESS_TOKEN_COOKIE -> deleteAccessTokenHeader;
+            case REFRESH_TOKEN_COOKIE -> deleteRefreshTokenHeader;
+            default -> name + "=; Max-Age=0" + attributes;
+        };
+        res.addHeader(HttpHeaders.SET_COOKIE, header);
     }
 }
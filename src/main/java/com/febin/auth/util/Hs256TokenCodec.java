@@ -0,0 +1,68 @@
+package com.febin.auth.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Purpose-built HS256 codec for {@link AccessTokenClaims}.
+ * <p>
+ * Compared to going through jjwt for every token it reuses one {@link Mac} per thread
+ * instead of creating a parser/signer per call, and gets the byte-level encoding and typed
+ * claim mapping of {@link AbstractCompactTokenCodec}.
+ * <p>
+ * Tokens are wire-compatible with the ones jjwt produces ({@code {"alg":"HS256"}} header).
+ */
+public class Hs256TokenCodec extends AbstractCompactTokenCodec<Mac> {
+
+    private static final String ALG = "HS256";
+    private static final byte[] HEADER_B64 = B64_ENCODER
+            .encode("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.US_ASCII));
+    private static final JwsHeader HEADER = new JwsHeader(ALG, null);
+
+    private final ThreadLocal<Mac> mac;
+
+    public Hs256TokenCodec(Key key) {
+        SecretKeySpec keySpec = new SecretKeySpec(key.getEncoded(), "HmacSHA256");
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac m = Mac.getInstance("HmacSHA256");
+                m.init(keySpec);
+                return m;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 not available", e);
+            }
+        });
+    }
+
+    @Override
+    protected Mac signingKey() {
+        return mac.get();
+    }
+
+    @Override
+    protected byte[] encodedHeader(Mac key) {
+        return HEADER_B64;
+    }
+
+    @Override
+    protected JwsHeader knownHeader(byte[] token, int headerEnd) {
+        return Arrays.equals(token, 0, headerEnd, HEADER_B64, 0, HEADER_B64.length) ? HEADER : null;
+    }
+
+    @Override
+    protected byte[] sign(Mac key, byte[] input, int length) {
+        key.update(input, 0, length);
+        return key.doFinal();
+    }
+
+    @Override
+    protected boolean verify(JwsHeader header, byte[] input, int length, byte[] signature) {
+        if (!ALG.equals(header.alg())) return false;
+        return MessageDigest.isEqual(sign(mac.get(), input, length), signature);
+    }
+}
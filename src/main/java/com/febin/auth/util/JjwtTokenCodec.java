@@ -0,0 +1,88 @@
+package com.febin.auth.util;
+
+import com.febin.auth.exception.TokenValidationException;
+import com.febin.auth.exception.TokenValidationException.Reason;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.SignatureException;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link TokenCodec} backed by jjwt. Kept as a fallback for {@link Hs256TokenCodec}
+ * (select with {@code jwt.codec=jjwt}).
+ */
+public class JjwtTokenCodec implements TokenCodec {
+
+    private final Key key;
+    private final JwtParser parser;
+
+    public JjwtTokenCodec(Key key) {
+        this.key = key;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+    }
+
+    @Override
+    public String encode(AccessTokenClaims claims) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", claims.id());
+        if (claims.username() != null) map.put("username", claims.username());
+        if (claims.email() != null) map.put("email", claims.email());
+        if (claims.roles() != null) map.put("roles", claims.roles());
+        if (claims.roleMask() != null) map.put("r", claims.roleMask());
+        if (claims.tokenVersion() != 0) map.put("ver", claims.tokenVersion());
+        JwtBuilder builder = Jwts.builder()
+                .setClaims(map)
+                .setSubject(claims.subject())
+                .setId(claims.tokenId())
+                .setExpiration(new Date(claims.expiresAtMillis()));
+        if (claims.issuedAt() != 0) builder.setIssuedAt(new Date(claims.issuedAt() * 1000L));
+        return builder.signWith(key, SignatureAlgorithm.HS256).compact();
+    }
+
+    @Override
+    public AccessTokenClaims decode(String token) {
+        Claims body;
+        try {
+            body = parser.parseClaimsJws(token).getBody();
+        } catch (ExpiredJwtException e) {
+            throw new TokenValidationException(Reason.EXPIRED, e.getMessage(), e);
+        } catch (SignatureException e) {
+            throw new TokenValidationException(Reason.BAD_SIGNATURE, e.getMessage(), e);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new TokenValidationException(Reason.MALFORMED, e.getMessage(), e);
+        }
+
+        if (body.getExpiration() == null) {
+            throw new TokenValidationException(Reason.MALFORMED, "Token has no expiry");
+        }
+
+        Number id = body.get("id", Number.class);
+        Number roleMask = body.get("r", Number.class);
+        Number version = body.get("ver", Number.class);
+        List<String> roles = null;
+        if (body.get("roles") instanceof List<?> list) {
+            roles = list.stream().map(String::valueOf).toList();
+        }
+        return new AccessTokenClaims(
+                body.getSubject(),
+                id == null ? null : id.longValue(),
+                body.get("username", String.class),
+                body.get("email", String.class),
+                roles,
+                roleMask == null ? null : roleMask.longValue(),
+                body.getIssuedAt() == null ? 0 : body.getIssuedAt().getTime() / 1000L,
+                body.getExpiration().getTime() / 1000L,
+                body.getId(),
+                version == null ? 0 : version.intValue());
+    }
+}
@@ -2,22 +2,33 @@ package com.febin.auth.util;
 
 import com.febin.auth.entity.Role;
 import com.febin.auth.entity.User;
+import com.febin.auth.exception.TokenValidationException;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Component
 public class JwtUtil {
 
     private final Key key;
+    private final JwtParser parser;
+    private final Key refreshKey;
+    private final JwtParser refreshParser;
+    private final TokenCodec accessTokenCodec;
+    private final RoleTable roleTable;
+    private final SecureTokenGenerator tokenGenerator;
+    private final boolean compactProfile;
     @Getter
     private final long accessTokenValidityMs;
     @Getter
@@ -25,10 +36,26 @@ public class JwtUtil {
 
     public JwtUtil(@Value("${jwt.secret}") String secret,
                    @Value("${jwt.access-token-validity-ms}") long accessTokenValidityMs,
-                   @Value("${jwt.refresh-token-validity-ms}") long refreshTokenValidityMs) {
+                   @Value("${jwt.refresh-token-validity-ms}") long refreshTokenValidityMs,
+                   @Value("${jwt.codec:hs256}") String codec,
+                   @Value("${jwt.token-profile:full}") String tokenProfile,
+                   SigningKeyRing signingKeyRing,
+                   RoleTable roleTable,
+                   SecureTokenGenerator tokenGenerator) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.refreshKey = deriveKey(secret, "refresh-token");
+        this.refreshParser = Jwts.parserBuilder().setSigningKey(refreshKey).build();
         this.accessTokenValidityMs = accessTokenValidityMs;
         this.refreshTokenValidityMs = refreshTokenValidityMs;
+        this.roleTable = roleTable;
+        this.tokenGenerator = tokenGenerator;
+        this.compactProfile = "compact".equalsIgnoreCase(tokenProfile);
+        if (signingKeyRing.isEnabled()) {
+            this.accessTokenCodec = new AsymmetricTokenCodec(signingKeyRing);
+        } else {
+            this.accessTokenCodec = "jjwt".equalsIgnoreCase(codec) ? new JjwtTokenCodec(key) : new Hs256TokenCodec(key);
+        }
     }
 
     public String generateAccessToken(String subject, Map<String, Object> claims) {
@@ -43,50 +70,116 @@ public class JwtUtil {
                 .compact();
     }
 
-    public String generateRefreshToken(String subject) {
-        Date now = new Date();
-        Date expiry = new Date(now.getTime() + refreshTokenValidityMs);
+    /**
+     * Create a stateless refresh token (see {@code jwt.refresh-mode}).
+     * It is signed with a key derived from jwt.secret, so it can never pass as an access token.
+     */
+    public String generateRefreshToken(User user, String familyId, int sequence, long expiresAtMs) {
         return Jwts.builder()
-                .setSubject(subject)
-                .setIssuedAt(now)
-                .setExpiration(expiry)
-                .signWith(key, SignatureAlgorithm.HS256)
+                .setSubject(user.getUsername())
+                .claim("uid", user.getId())
+                .claim("fid", familyId)
+                .claim("seq", sequence)
+                .claim("ver", user.getTokenVersion())
+                .setExpiration(new Date(expiresAtMs))
+                .signWith(refreshKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verify a token issued by {@link #generateRefreshToken(User, String, int, long)}.
+     *
+     * @throws TokenValidationException if the token is malformed, badly signed or expired
+     */
+    public RefreshTokenClaims parseRefreshToken(String token) {
+        Claims body;
+        try {
+            body = refreshParser.parseClaimsJws(token).getBody();
+        } catch (ExpiredJwtException e) {
+            throw new TokenValidationException(TokenValidationException.Reason.EXPIRED, e.getMessage(), e);
+        } catch (io.jsonwebtoken.security.SignatureException e) {
+            throw new TokenValidationException(TokenValidationException.Reason.BAD_SIGNATURE, e.getMessage(), e);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new TokenValidationException(TokenValidationException.Reason.MALFORMED, e.getMessage(), e);
+        }
+        Number userId = body.get("uid", Number.class);
+        Number sequence = body.get("seq", Number.class);
+        Number version = body.get("ver", Number.class);
+        String familyId = body.get("fid", String.class);
+        if (userId == null || sequence == null || familyId == null || body.getExpiration() == null) {
+            throw new TokenValidationException(TokenValidationException.Reason.MALFORMED, "Not a refresh token");
+        }
+        return new RefreshTokenClaims(body.getSubject(), userId.longValue(), familyId, sequence.intValue(),
+                version == null ? 0 : version.intValue(), body.getExpiration().getTime() / 1000L);
+    }
+
     public Jws<Claims> parseClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+        return parser.parseClaimsJws(token);
     }
 
-    public boolean isTokenExpired(String token) {
-        try {
-            return parseClaims(token).getBody().getExpiration().before(new Date());
-        } catch (JwtException e) {
-            return true;
-        }
+    /**
+     * Verify an access token issued by {@link #generateAccessToken(User)} and return its claims.
+     *
+     * @throws TokenValidationException if the token is malformed, badly signed or expired
+     */
+    public AccessTokenClaims parseAccessToken(String token) {
+        return accessTokenCodec.decode(token);
     }
 
     /**
      * Create an access token for the given user.
-     * Claims included: id, username, email, roles (String array).
+     * Claims included: id, username, email, roles (String array), and a unique jti
+     * so the token can be revoked before it expires, and the user's token version (ver)
+     * so all of a user's tokens can be cut off at once.
      * Subject is set to the username (change to id if you prefer).
+     * <p>
+     * With {@code jwt.token-profile=compact} only sub, id, exp, jti, ver and the role
+     * bitmask (r) are written.
      */
     public String generateAccessToken(User user) {
         if (user == null) throw new IllegalArgumentException("user cannot be null");
 
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("id", user.getId());
-        claims.put("username", user.getUsername());
-        claims.put("email", user.getEmail());
+        List<String> roles = user.getRoles() == null ? List.of()
+                : user.getRoles().stream().map(Role::getName).toList();
 
-        if (user.getRoles() != null) {
-            claims.put("roles", user.getRoles()
-                    .stream()
-                    .map(Role::getName)
-                    .collect(Collectors.toList()));
-        }
+        long nowSeconds = System.currentTimeMillis() / 1000L;
+        long expiresAt = nowSeconds + accessTokenValidityMs / 1000L;
+        // 128 random bits, 22 chars
+        String jti = tokenGenerator.newId();
+        AccessTokenClaims claims = compactProfile
+                ? new AccessTokenClaims(
+                        user.getUsername(),
+                        user.getId(),
+                        null,
+                        null,
+                        null,
+                        roleTable.toMask(roles),
+                        0,
+                        expiresAt,
+                        jti,
+                        user.getTokenVersion())
+                : new AccessTokenClaims(
+                        user.getUsername(),
+                        user.getId(),
+                        user.getUsername(),
+                        user.getEmail(),
+                        roles,
+                        null,
+                        nowSeconds,
+                        expiresAt,
+                        jti,
+                        user.getTokenVersion());
+        return accessTokenCodec.encode(claims);
+    }
 
-        String subject = user.getUsername();
-        return generateAccessToken(subject, claims);
+    private static Key deriveKey(String secret, String purpose) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(), "HmacSHA256"));
+            return new SecretKeySpec(mac.doFinal(purpose.getBytes(StandardCharsets.UTF_8)), "HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
     }
+
 }
@@ -0,0 +1,16 @@
+package com.febin.auth.util;
+
+/**
+ * Claims of a stateless (signed) refresh token.
+ *
+ * @param familyId   id shared by every token descending from one login
+ * @param sequence   position of this token in its family; each refresh issues sequence + 1
+ * @param expiresAt  epoch seconds
+ */
+public record RefreshTokenClaims(String subject, Long userId, String familyId, int sequence,
+                                 int tokenVersion, long expiresAt) {
+
+    public long expiresAtMillis() {
+        return expiresAt * 1000L;
+    }
+}
@@ -0,0 +1,80 @@
+package com.febin.auth.util;
+
+import com.febin.auth.entity.Role;
+import com.febin.auth.repository.RoleRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Server-side role table for the compact token profile: role names are encoded as a
+ * bitmask where bit {@code n} stands for the role with id {@code n} (ids 1..63).
+ * <p>
+ * Roles are seeded by migrations and practically never change, so the table is loaded on
+ * first use and only reloaded when a name or bit is not known yet.
+ */
+@Component
+public class RoleTable {
+
+    private static final int MAX_BIT = 63;
+
+    private final RoleRepository roleRepository;
+    private volatile Snapshot snapshot;
+
+    private record Snapshot(Map<String, Integer> bitByName, String[] nameByBit) {
+    }
+
+    public RoleTable(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    public long toMask(Collection<String> roleNames) {
+        long mask = 0;
+        for (String name : roleNames) {
+            Integer bit = snapshot().bitByName().get(name);
+            if (bit == null) bit = reload().bitByName().get(name);
+            if (bit == null) throw new IllegalStateException("Role cannot be encoded in a compact token: " + name);
+            mask |= 1L << bit;
+        }
+        return mask;
+    }
+
+    public List<String> toNames(long mask) {
+        Snapshot current = snapshot();
+        List<String> names = new ArrayList<>(Long.bitCount(mask));
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            int bit = Long.numberOfTrailingZeros(rest);
+            String name = current.nameByBit()[bit];
+            if (name == null) {
+                current = reload();
+                name = current.nameByBit()[bit];
+            }
+            // an unknown bit (role deleted since issue) grants nothing
+            if (name != null) names.add(name);
+        }
+        return names;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : reload();
+    }
+
+    private synchronized Snapshot reload() {
+        Map<String, Integer> bitByName = new HashMap<>();
+        String[] nameByBit = new String[MAX_BIT + 1];
+        for (Role role : roleRepository.findAll()) {
+            long id = role.getId();
+            if (id < 1 || id > MAX_BIT) continue;
+            bitByName.put(role.getName(), (int) id);
+            nameByBit[(int) id] = role.getName();
+        }
+        Snapshot loaded = new Snapshot(Map.copyOf(bitByName), nameByBit);
+        snapshot = loaded;
+        return loaded;
+    }
+}
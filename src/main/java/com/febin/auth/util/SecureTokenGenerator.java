@@ -0,0 +1,60 @@
+package com.febin.auth.util;
+
+import org.springframework.stereotype.Component;
+
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Single source of secrets: refresh tokens, verification links, OTP codes, token ids.
+ * <p>
+ * Each thread gets its own DRBG instance (NIST SP 800-90A, 256-bit strength, seeded from the
+ * system entropy source), so concurrent requests never contend on one shared SecureRandom.
+ */
+@Component
+public class SecureTokenGenerator {
+
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final int[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000,
+            10_000_000, 100_000_000, 1_000_000_000};
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(() -> {
+        try {
+            return SecureRandom.getInstance("DRBG",
+                    DrbgParameters.instantiation(256, DrbgParameters.Capability.RESEED_ONLY, null));
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    });
+
+    public byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        RANDOM.get().nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * 256-bit random token, base64url without padding (43 chars).
+     */
+    public String newToken() {
+        return B64.encodeToString(randomBytes(32));
+    }
+
+    /**
+     * 128-bit random identifier, base64url without padding (22 chars).
+     */
+    public String newId() {
+        return B64.encodeToString(randomBytes(16));
+    }
+
+    /**
+     * Uniformly distributed numeric code with exactly {@code digits} digits (leading zeros kept).
+     */
+    public String newNumericCode(int digits) {
+        if (digits < 1 || digits > 9) throw new IllegalArgumentException("digits must be between 1 and 9");
+        int code = RANDOM.get().nextInt(POWERS_OF_TEN[digits]);
+        return String.format("%0" + digits + "d", code);
+    }
+}
@@ -0,0 +1,64 @@
+package com.febin.auth.util;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One asymmetric key of the {@link SigningKeyRing}. The private key is null for
+ * keys that are only kept around to verify tokens they signed earlier.
+ */
+public record SigningKey(String kid, String alg, PrivateKey privateKey, PublicKey publicKey) {
+
+    public static final String ES256 = "ES256";
+    public static final String EDDSA = "EdDSA";
+
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+
+    /**
+     * The base64url-encoded JOSE header announcing this key.
+     */
+    public byte[] encodedHeader() {
+        String json = "{\"alg\":\"" + alg + "\",\"kid\":\"" + kid + "\"}";
+        return B64.encode(json.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Public part of the key as a JWK (RFC 7517 / RFC 8037).
+     */
+    public Map<String, Object> toJwk() {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        if (ES256.equals(alg)) {
+            ECPublicKey ec = (ECPublicKey) publicKey;
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("x", B64.encodeToString(unsigned(ec.getW().getAffineX(), 32)));
+            jwk.put("y", B64.encodeToString(unsigned(ec.getW().getAffineY(), 32)));
+        } else {
+            // X.509 SubjectPublicKeyInfo for Ed25519 is a fixed 12-byte prefix + the 32-byte key
+            byte[] encoded = publicKey.getEncoded();
+            jwk.put("kty", "OKP");
+            jwk.put("crv", "Ed25519");
+            jwk.put("x", B64.encodeToString(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)));
+        }
+        jwk.put("kid", kid);
+        jwk.put("alg", alg);
+        jwk.put("use", "sig");
+        return jwk;
+    }
+
+    private static byte[] unsigned(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length == length) return bytes;
+        byte[] out = new byte[length];
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, out, length - copy, copy);
+        return out;
+    }
+}
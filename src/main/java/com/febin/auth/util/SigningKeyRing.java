@@ -0,0 +1,182 @@
+package com.febin.auth.util;
+
+import com.febin.auth.config.JwtProperties;
+import org.springframework.stereotype.Component;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * In-memory ring of asymmetric keys used to sign access tokens (ES256 or EdDSA).
+ * <p>
+ * The ring holds:
+ * - the active key, which signs new tokens,
+ * - the next key, generated one rotation ahead so it is already published in the JWKS
+ *   (and cached by resource servers) before it signs anything,
+ * - retired keys, kept for verification until every token they signed has expired.
+ * <p>
+ * Rotation happens lazily on the signing path. When a fixed key is configured
+ * ({@code jwt.signing.private-key}) it is used as-is and never rotated, which is what
+ * multi-instance deployments need, since generated keys are local to one instance.
+ * With {@code jwt.signing.algorithm=HS256} the ring is disabled and empty.
+ */
+@Component
+public class SigningKeyRing {
+
+    private final String algorithm;
+    private final long rotationPeriodMs;
+    private final long retentionMs;
+    private final boolean fixedKey;
+    private final SecureRandom random = new SecureRandom();
+
+    private volatile State state;
+
+    private record Retired(SigningKey key, long verifyUntilMs) {
+    }
+
+    private record State(SigningKey active, SigningKey next, List<Retired> retired, long rotateAtMs) {
+    }
+
+    public SigningKeyRing(JwtProperties jwtProperties) {
+        JwtProperties.Signing signing = jwtProperties.getSigning();
+        this.algorithm = normalize(signing.getAlgorithm());
+        this.rotationPeriodMs = signing.getRotationPeriod().toMillis();
+        // a retired key must outlive the tokens it signed
+        this.retentionMs = jwtProperties.getAccessTokenValidityMs() + 60_000;
+        this.fixedKey = signing.getPrivateKey() != null && !signing.getPrivateKey().isBlank();
+
+        if (algorithm == null) return;
+        long now = System.currentTimeMillis();
+        if (fixedKey) {
+            SigningKey key = loadKey(signing);
+            this.state = new State(key, null, List.of(), Long.MAX_VALUE);
+        } else {
+            this.state = new State(generateKey(), generateKey(), List.of(), now + rotationPeriodMs);
+        }
+    }
+
+    public boolean isEnabled() {
+        return algorithm != null;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * The key that signs new tokens, rotating first if the current one is due.
+     */
+    public SigningKey activeKey() {
+        State s = state;
+        if (System.currentTimeMillis() >= s.rotateAtMs) {
+            rotate();
+            s = state;
+        }
+        return s.active;
+    }
+
+    /**
+     * Find a key that may verify a token with the given kid, or null.
+     */
+    public SigningKey findKey(String kid) {
+        State s = state;
+        if (s == null || kid == null) return null;
+        if (kid.equals(s.active.kid())) return s.active;
+        if (s.next != null && kid.equals(s.next.kid())) return s.next;
+        long now = System.currentTimeMillis();
+        for (Retired r : s.retired) {
+            if (kid.equals(r.key.kid()) && r.verifyUntilMs > now) return r.key;
+        }
+        return null;
+    }
+
+    /**
+     * Keys to publish in the JWKS: active, next and still-valid retired keys.
+     */
+    public List<SigningKey> publishedKeys() {
+        State s = state;
+        if (s == null) return List.of();
+        List<SigningKey> keys = new ArrayList<>();
+        keys.add(s.active);
+        if (s.next != null) keys.add(s.next);
+        long now = System.currentTimeMillis();
+        for (Retired r : s.retired) {
+            if (r.verifyUntilMs > now) keys.add(r.key);
+        }
+        return keys;
+    }
+
+    private synchronized void rotate() {
+        State s = state;
+        long now = System.currentTimeMillis();
+        if (now < s.rotateAtMs) return; // another thread rotated already
+
+        List<Retired> retired = new ArrayList<>();
+        for (Retired r : s.retired) {
+            if (r.verifyUntilMs > now) retired.add(r);
+        }
+        retired.add(new Retired(withoutPrivateKey(s.active), now + retentionMs));
+        state = new State(s.next, generateKey(), List.copyOf(retired), now + rotationPeriodMs);
+    }
+
+    private SigningKey generateKey() {
+        try {
+            KeyPairGenerator generator;
+            if (SigningKey.ES256.equals(algorithm)) {
+                generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp256r1"), random);
+            } else {
+                generator = KeyPairGenerator.getInstance("Ed25519");
+            }
+            KeyPair pair = generator.generateKeyPair();
+            return new SigningKey(newKid(), algorithm, pair.getPrivate(), pair.getPublic());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not generate " + algorithm + " signing key", e);
+        }
+    }
+
+    private SigningKey loadKey(JwtProperties.Signing signing) {
+        if (signing.getPublicKey() == null || signing.getPublicKey().isBlank()) {
+            throw new IllegalStateException("jwt.signing.public-key is required when jwt.signing.private-key is set");
+        }
+        try {
+            KeyFactory factory = KeyFactory.getInstance(SigningKey.ES256.equals(algorithm) ? "EC" : "Ed25519");
+            Base64.Decoder decoder = Base64.getMimeDecoder();
+            return new SigningKey(
+                    signing.getKeyId() != null && !signing.getKeyId().isBlank() ? signing.getKeyId() : "static",
+                    algorithm,
+                    factory.generatePrivate(new PKCS8EncodedKeySpec(decoder.decode(signing.getPrivateKey()))),
+                    factory.generatePublic(new X509EncodedKeySpec(decoder.decode(signing.getPublicKey()))));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Could not load configured " + algorithm + " signing key", e);
+        }
+    }
+
+    private String newKid() {
+        byte[] bytes = new byte[12];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static SigningKey withoutPrivateKey(SigningKey key) {
+        return new SigningKey(key.kid(), key.alg(), null, key.publicKey());
+    }
+
+    private static String normalize(String algorithm) {
+        if (algorithm == null || algorithm.isBlank() || "HS256".equalsIgnoreCase(algorithm)) return null;
+        if (SigningKey.ES256.equalsIgnoreCase(algorithm)) return SigningKey.ES256;
+        if (SigningKey.EDDSA.equalsIgnoreCase(algorithm) || "Ed25519".equalsIgnoreCase(algorithm)) {
+            return SigningKey.EDDSA;
+        }
+        throw new IllegalArgumentException("Unsupported jwt.signing.algorithm: " + algorithm);
+    }
+}
@@ -0,0 +1,18 @@
+package com.febin.auth.util;
+
+import com.febin.auth.exception.TokenValidationException;
+
+/**
+ * Encodes and verifies signed access tokens.
+ */
+public interface TokenCodec {
+
+    String encode(AccessTokenClaims claims);
+
+    /**
+     * Verify the token and return its claims.
+     *
+     * @throws TokenValidationException if the token is malformed, badly signed or expired
+     */
+    AccessTokenClaims decode(String token);
+}
@@ -0,0 +1,29 @@
+package com.febin.auth.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 digests of opaque tokens, for storing and looking up tokens without keeping them in clear.
+ */
+public final class TokenHashes {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private TokenHashes() {
+    }
+
+    /**
+     * 32-byte SHA-256 of the token's UTF-8 bytes.
+     */
+    public static byte[] sha256(String token) {
+        return SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,83 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * V10 (expand): Store refresh tokens as a BINARY(32) SHA-256 (token_hash) instead of the raw VARCHAR token.
+ * <p>
+ * Existing rows are hashed in Java in chunks of {@value #CHUNK_SIZE}, each committed on its own,
+ * so the table is never locked for the whole backfill. Old UUID tokens stay valid: they are
+ * looked up by the hash of the same string.
+ * <p>
+ * Instances of the previous release keep inserting raw tokens during a rolling deploy, so this
+ * step only expands the schema: token becomes nullable (new code no longer writes it) and a
+ * trigger hashes whatever old code inserts, before the backfill starts so no row can slip between.
+ * Making token_hash NOT NULL and dropping token happens in V16, once no old instance is left.
+ * The trigger needs the TRIGGER privilege (and, with binary logging, log_bin_trust_function_creators
+ * or SUPER on some MySQL setups).
+ */
+public class V10__hash_refresh_tokens extends BaseJavaMigration {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        // every chunk commits separately
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE refresh_tokens ADD COLUMN token_hash BINARY(32) NULL, ALGORITHM=INPLACE, LOCK=NONE");
+            statement.execute("ALTER TABLE refresh_tokens MODIFY token VARCHAR(255) NULL");
+            statement.execute("""
+                    CREATE TRIGGER trg_refresh_tokens_hash BEFORE INSERT ON refresh_tokens FOR EACH ROW
+                    SET NEW.token_hash = IF(NEW.token_hash IS NULL AND NEW.token IS NOT NULL,
+                                            UNHEX(SHA2(NEW.token, 256)), NEW.token_hash)
+                    """);
+        }
+
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement select = connection.prepareStatement(
+                     "SELECT id, token FROM refresh_tokens WHERE id > ? ORDER BY id LIMIT " + CHUNK_SIZE);
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE refresh_tokens SET token_hash = ? WHERE id = ?")) {
+            long lastId = 0;
+            while (true) {
+                int rows = 0;
+                select.setLong(1, lastId);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getLong(1);
+                        update.setBytes(1, sha256.digest(rs.getString(2).getBytes(StandardCharsets.UTF_8)));
+                        update.setLong(2, lastId);
+                        update.addBatch();
+                        rows++;
+                    }
+                }
+                if (rows == 0) break;
+                update.executeBatch();
+                connection.commit();
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            // NULLs are allowed in a unique index; V16 makes the column NOT NULL
+            statement.execute("CREATE UNIQUE INDEX uk_refresh_tokens_token_hash ON refresh_tokens (token_hash)");
+        }
+    }
+}
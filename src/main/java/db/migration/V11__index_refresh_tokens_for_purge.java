@@ -0,0 +1,20 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Statement;
+
+/**
+ * V11: Indexes driving the batched refresh-token purge (RefreshTokenPurgeService):
+ * expired rows by expiry_date, revoked rows by (revoked, created_at).
+ */
+public class V11__index_refresh_tokens_for_purge extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("CREATE INDEX idx_refresh_tokens_expiry_date ON refresh_tokens (expiry_date)");
+            statement.execute("CREATE INDEX idx_refresh_tokens_revoked_created_at ON refresh_tokens (revoked, created_at)");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * V12 (expand): Refresh-token families. Every token rotated from the same login shares a family_id,
+ * so reuse of an already-rotated token can revoke the whole family in one statement.
+ * Existing rows each become their own family, backfilled in committed primary-key chunks.
+ * <p>
+ * Instances of the previous release do not write family_id during a rolling deploy, so the column
+ * stays nullable and a trigger (created before the backfill, as in V10) gives each row they insert
+ * its own family. V17 drops the trigger and makes the column NOT NULL once no old instance is left.
+ */
+public class V12__add_family_id_to_refresh_tokens extends BaseJavaMigration {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE refresh_tokens ADD COLUMN family_id BINARY(16) NULL, ALGORITHM=INPLACE, LOCK=NONE");
+            statement.execute("""
+                    CREATE TRIGGER trg_refresh_tokens_family BEFORE INSERT ON refresh_tokens FOR EACH ROW
+                    SET NEW.family_id = IFNULL(NEW.family_id, UUID_TO_BIN(UUID()))
+                    """);
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement();
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE refresh_tokens SET family_id = UUID_TO_BIN(UUID()) WHERE id > ? AND id <= ? AND family_id IS NULL")) {
+            long maxId;
+            try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM refresh_tokens")) {
+                rs.next();
+                maxId = rs.getLong(1);
+            }
+            // primary-key ranges, as in V10: each chunk commits on its own and never rescans earlier rows
+            for (long from = 0; from < maxId; from += CHUNK_SIZE) {
+                update.setLong(1, from);
+                update.setLong(2, from + CHUNK_SIZE);
+                update.executeUpdate();
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE INDEX idx_refresh_tokens_family_id ON refresh_tokens (family_id)");
+        }
+    }
+}
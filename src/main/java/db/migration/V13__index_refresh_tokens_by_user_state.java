@@ -0,0 +1,19 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Statement;
+
+/**
+ * V13: Composite index for per-user session queries (list, count and evict a user's live
+ * refresh tokens). It also serves the user_id foreign key.
+ */
+public class V13__index_refresh_tokens_by_user_state extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("CREATE INDEX idx_refresh_tokens_user_revoked_expiry ON refresh_tokens (user_id, revoked, expiry_date)");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Statement;
+
+/**
+ * V14: Sequence table for Hibernate's pooled TABLE generator (users, refresh_tokens, user_providers).
+ * Ids are handed out in blocks of 50 per instance, which lets Hibernate batch inserts
+ * (IDENTITY forces one round-trip per row). Each sequence starts safely above the current
+ * max id plus one allocation block.
+ * <p>
+ * Instances of the previous release keep inserting through AUTO_INCREMENT during a rolling deploy
+ * ({@code spring.flyway.target=15}). Each table's AUTO_INCREMENT is moved up to {@link #IDENTITY_FENCE},
+ * so their rows land far above the sequence range. It has to be this way round: InnoDB raises the
+ * counter past any explicit id inserted above it, so a sequence started above the counter would
+ * drag old instances into its own range with the first new row. The fence stays below 2^53, so
+ * every id is still exact as a JSON number. Rows written by old instances during the rollout sort
+ * after newer ones where ids are ordered (session paging), until they expire.
+ */
+public class V14__create_id_sequences extends BaseJavaMigration {
+
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int MARGIN = 100;
+    private static final long IDENTITY_FENCE = 1L << 48;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS id_sequences (
+                      sequence_name VARCHAR(64) NOT NULL PRIMARY KEY,
+                      next_val BIGINT NOT NULL
+                    )
+                    """);
+            for (String table : new String[]{"users", "refresh_tokens", "user_providers"}) {
+                // fence first: from here on old instances insert above it, so the max below it is final
+                statement.execute("ALTER TABLE " + table + " AUTO_INCREMENT = " + IDENTITY_FENCE);
+                statement.executeUpdate("INSERT INTO id_sequences (sequence_name, next_val) "
+                        + "SELECT '" + table + "', COALESCE(MAX(id), 0) + " + (ALLOCATION_SIZE + MARGIN)
+                        + " FROM " + table + " WHERE id < " + IDENTITY_FENCE);
+            }
+        }
+    }
+}
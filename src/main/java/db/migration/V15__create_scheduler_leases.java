@@ -0,0 +1,29 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Statement;
+
+/**
+ * V15: One lease row per background job (LeaseScheduler). The node named in {@code owner} may run
+ * the job until {@code lease_until}; {@code fencing_token} grows by one on every takeover.
+ * Rows are created on demand by the application.
+ */
+public class V15__create_scheduler_leases extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS scheduler_leases (
+                      job_name VARCHAR(64) NOT NULL PRIMARY KEY,
+                      owner VARCHAR(128) NULL,
+                      lease_until TIMESTAMP(3) NOT NULL,
+                      acquired_at TIMESTAMP(3) NULL,
+                      heartbeat_at TIMESTAMP(3) NULL,
+                      fencing_token BIGINT NOT NULL DEFAULT 0
+                    )
+                    """);
+        }
+    }
+}
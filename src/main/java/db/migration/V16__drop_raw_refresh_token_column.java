@@ -0,0 +1,65 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * V16 (contract): finish the token_hash conversion started in V10. Hashes any row still missing its
+ * token_hash (chunked by primary key, each chunk committed on its own), drops the trigger, makes
+ * token_hash NOT NULL and drops the raw token column.
+ * <p>
+ * Run it once no instance older than V10 is left: old code still writes the token column. When
+ * upgrading a live cluster from before V10, deploy with {@code spring.flyway.target=15} first and
+ * let this migration run on the next deploy. Databases migrated by the earlier single-step V10 no
+ * longer have the token column, and this migration does nothing on them.
+ */
+public class V16__drop_raw_refresh_token_column extends BaseJavaMigration {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), null, "refresh_tokens", "token")) {
+            if (!columns.next()) return;
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement();
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE refresh_tokens SET token_hash = UNHEX(SHA2(token, 256)) "
+                             + "WHERE id > ? AND id <= ? AND token_hash IS NULL AND token IS NOT NULL")) {
+            long maxId;
+            try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM refresh_tokens")) {
+                rs.next();
+                maxId = rs.getLong(1);
+            }
+            // primary-key ranges: each chunk touches at most CHUNK_SIZE rows and never rescans
+            for (long from = 0; from < maxId; from += CHUNK_SIZE) {
+                update.setLong(1, from);
+                update.setLong(2, from + CHUNK_SIZE);
+                update.executeUpdate();
+            }
+
+            statement.execute("DROP TRIGGER IF EXISTS trg_refresh_tokens_hash");
+            // rows inserted after the chunk pass (ids above maxId) and before the trigger went away
+            statement.executeUpdate("UPDATE refresh_tokens SET token_hash = UNHEX(SHA2(token, 256)) "
+                    + "WHERE id > " + maxId + " AND token_hash IS NULL AND token IS NOT NULL");
+            statement.execute("ALTER TABLE refresh_tokens MODIFY token_hash BINARY(32) NOT NULL");
+            statement.execute("ALTER TABLE refresh_tokens DROP COLUMN token");
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * V17 (contract): finish the family_id column added by V12. Drops the trigger that gave rows inserted
+ * by instances older than V12 their own family, fills any row still without one and makes family_id
+ * NOT NULL.
+ * <p>
+ * Like V16, run it once no instance older than V12 is left (deploy with {@code spring.flyway.target=15}
+ * first). Databases migrated by the earlier single-step V12 already have the constraint, and this
+ * migration does nothing on them.
+ */
+public class V17__require_refresh_token_family_id extends BaseJavaMigration {
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), null, "refresh_tokens", "family_id")) {
+            if (!columns.next() || "NO".equals(columns.getString("IS_NULLABLE"))) return;
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TRIGGER IF EXISTS trg_refresh_tokens_family");
+            // the trigger covered every insert since V12, so this only catches rows V12 raced with
+            statement.executeUpdate("UPDATE refresh_tokens SET family_id = UUID_TO_BIN(UUID()) WHERE family_id IS NULL");
+            statement.execute("ALTER TABLE refresh_tokens MODIFY family_id BINARY(16) NOT NULL");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Statement;
+
+/**
+ * V18: Rate-limit rule sets published at runtime (PUT /api/admin/rate-limit/rules), one row per change.
+ * Every instance polls for the highest id and applies its {@code config} (JSON of RateLimitProperties);
+ * a NULL config means "back to the application properties".
+ */
+public class V18__create_rate_limit_rules extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS rate_limit_rules (
+                      id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                      config TEXT NULL,
+                      created_by BIGINT NULL,
+                      created_at TIMESTAMP(3) NOT NULL
+                    )
+                    """);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Statement;
+
+/**
+ * V19: Token cutoffs of deleted users. Deleting a user removes the users row that other instances
+ * read the cutoff from (TokenVersionRegistry), so the cutoff is kept here until every access token
+ * issued before the deletion has expired.
+ */
+public class V19__create_deleted_users extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS deleted_users (
+                      user_id BIGINT NOT NULL PRIMARY KEY,
+                      token_version INT NOT NULL,
+                      deleted_at TIMESTAMP(3) NOT NULL,
+                      INDEX idx_deleted_users_deleted_at (deleted_at)
+                    )
+                    """);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Statement;
+
+/**
+ * V9: Per-user token cutoff. Access tokens carry the user's token_version at issue time;
+ * bumping it invalidates every token issued before. tokens_revoked_at lets each instance
+ * pick up recent bumps incrementally.
+ */
+public class V9__add_token_version_to_users extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("ALTER TABLE users ADD COLUMN token_version INT NOT NULL DEFAULT 0");
+            statement.execute("ALTER TABLE users ADD COLUMN tokens_revoked_at TIMESTAMP(3) NULL");
+            statement.execute("CREATE INDEX idx_users_tokens_revoked_at ON users (tokens_revoked_at)");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.febin.auth.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BucketStoreTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    // 5 tokens, one back per second
+    private static final TokenBucket.Limit LIMIT = TokenBucket.Limit.of(5, 1, 1);
+    private static final long START = 1_000 * SECOND;
+
+    @Test
+    void keepsOneBucketPerClientAndEndpoint() {
+        BucketStore store = new BucketStore(1024);
+        ClientAddress a = ClientAddress.parse("192.0.2.1");
+        ClientAddress b = ClientAddress.parse("192.0.2.2");
+
+        for (int i = 0; i < 5; i++) {
+            store.tryConsume(a, 1, LIMIT, START);
+        }
+
+        assertTrue(store.tryConsume(a, 1, LIMIT, START) < 0);
+        assertEquals(4, store.tryConsume(a, 2, LIMIT, START));
+        assertEquals(4, store.tryConsume(b, 1, LIMIT, START));
+    }
+
+    @Test
+    void evictsOnlyBucketsThatHaveRefilled() {
+        BucketStore store = new BucketStore(1024);
+        ClientAddress idle = ClientAddress.parse("192.0.2.1");
+        ClientAddress busy = ClientAddress.parse("192.0.2.2");
+        store.tryConsume(idle, 1, LIMIT, START);
+        for (int i = 0; i < 5; i++) {
+            store.tryConsume(busy, 1, LIMIT, START + 2 * SECOND);
+        }
+
+        store.evictIdle(START + 2 * SECOND);
+
+        assertEquals(1L, store.getStats().get("buckets"));
+        assertEquals(1L, store.getStats().get("idleEvictions"));
+        // the busy client is still limited
+        assertTrue(store.tryConsume(busy, 1, LIMIT, START + 2 * SECOND) < 0);
+    }
+
+    @Test
+    void staysWithinCapacityUnderPressure() {
+        BucketStore store = new BucketStore(1024);
+        long capacity = (long) store.getStats().get("capacity");
+
+        for (int i = 0; i < 20_000; i++) {
+            store.tryConsume(new ClientAddress(1, i), 1, LIMIT, START);
+        }
+
+        Object buckets = store.getStats().get("buckets");
+        assertTrue((long) buckets <= capacity, buckets + " > " + capacity);
+        assertTrue((long) store.getStats().get("forcedEvictions") > 0);
+    }
+
+    @Test
+    void sweepsRefilledBucketsBeforeForcingEvictions() {
+        BucketStore store = new BucketStore(1024);
+        long capacity = (long) store.getStats().get("capacity");
+        for (int i = 0; i < capacity; i++) {
+            store.tryConsume(new ClientAddress(1, i), 1, LIMIT, START);
+        }
+        Object forcedBefore = store.getStats().get("forcedEvictions");
+
+        // every earlier bucket has refilled by now, so they make room without any forced eviction
+        for (int i = 0; i < capacity / 2; i++) {
+            store.tryConsume(new ClientAddress(2, i), 1, LIMIT, START + 10 * SECOND);
+        }
+
+        assertEquals(forcedBefore, store.getStats().get("forcedEvictions"));
+        assertTrue((long) store.getStats().get("idleEvictions") > 0);
+    }
+}
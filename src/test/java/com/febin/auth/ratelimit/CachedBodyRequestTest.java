@@ -0,0 +1,121 @@
+package com.febin.auth.ratelimit;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachedBodyRequestTest {
+
+    private static final byte[] BODY = "{\"usernameOrEmail\":\"alice\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void servesTheBodyAgainToEveryReader() throws IOException {
+        CachedBodyRequest request = CachedBodyRequest.wrap(request(BODY), 1024);
+
+        assertArrayEquals(BODY, request.getInputStream().readAllBytes());
+        assertArrayEquals(BODY, request.getInputStream().readAllBytes());
+        assertEquals(new String(BODY, StandardCharsets.UTF_8), request.getReader().readLine());
+        assertEquals(BODY.length, request.getContentLength());
+    }
+
+    @Test
+    void refusesBodiesOverTheLimit() throws IOException {
+        assertNull(CachedBodyRequest.wrap(request(BODY), BODY.length - 1));
+    }
+
+    @Test
+    void notifiesAReadListenerThatEverythingIsAvailable() throws IOException {
+        MockHttpServletRequest mock = request(BODY);
+        mock.setAsyncSupported(true);
+        mock.startAsync();
+        ServletInputStream in = CachedBodyRequest.wrap(mock, 1024).getInputStream();
+        List<String> events = new ArrayList<>();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                events.add("data");
+                byte[] buffer = new byte[8];
+                while (in.isReady() && !in.isFinished()) {
+                    read.write(buffer, 0, in.read(buffer));
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                events.add("done");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                events.add("error");
+            }
+        });
+
+        assertEquals(List.of("data", "done"), events);
+        assertArrayEquals(BODY, read.toByteArray());
+        assertThrows(IllegalStateException.class, () -> in.setReadListener(new NoopListener()));
+    }
+
+    @Test
+    void reportsListenerFailuresToOnError() throws IOException {
+        MockHttpServletRequest mock = request(BODY);
+        mock.setAsyncSupported(true);
+        mock.startAsync();
+        List<Throwable> errors = new ArrayList<>();
+
+        CachedBodyRequest.wrap(mock, 1024).getInputStream().setReadListener(new NoopListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                throw new IOException("boom");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                errors.add(t);
+            }
+        });
+
+        assertEquals("boom", errors.get(0).getMessage());
+    }
+
+    @Test
+    void requiresAsyncProcessingForNonBlockingReads() throws IOException {
+        ServletInputStream in = CachedBodyRequest.wrap(request(BODY), 1024).getInputStream();
+
+        assertThrows(IllegalStateException.class, () -> in.setReadListener(new NoopListener()));
+    }
+
+    private static MockHttpServletRequest request(byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setContent(body);
+        return request;
+    }
+
+    private static class NoopListener implements ReadListener {
+        @Override
+        public void onDataAvailable() throws IOException {
+        }
+
+        @Override
+        public void onAllDataRead() {
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.febin.auth.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientAddressTest {
+
+    @Test
+    void parsesIpv4AsMappedIpv6() {
+        ClientAddress v4 = ClientAddress.parse("192.0.2.1");
+
+        assertTrue(v4.isIpv4());
+        assertEquals(v4, ClientAddress.parse("::ffff:192.0.2.1"));
+    }
+
+    @Test
+    void parsesCompressedIpv6() {
+        assertEquals(new ClientAddress(0x2001_0db8_0000_0000L, 1), ClientAddress.parse("2001:db8::1"));
+        assertEquals(ClientAddress.parse("2001:db8:0:0:0:0:0:1"), ClientAddress.parse("[2001:db8::1]"));
+    }
+
+    @Test
+    void hashesNonIpValuesToStableKeys() {
+        assertNull(ClientAddress.parseIp("unknown"));
+        assertEquals(ClientAddress.parse("unknown"), ClientAddress.parse("unknown"));
+        assertNotEquals(ClientAddress.parse("unknown"), ClientAddress.parse("unknown2"));
+    }
+
+    @Test
+    void keysIpv6ClientsByTheirSlash64() {
+        ClientAddress a = ClientAddress.parse("2001:db8:1:2::1");
+        ClientAddress b = ClientAddress.parse("2001:db8:1:2:ffff:ffff:ffff:fffe");
+        ClientAddress otherNetwork = ClientAddress.parse("2001:db8:1:3::1");
+
+        assertEquals(a.bucketKey(), b.bucketKey());
+        assertNotEquals(a.bucketKey(), otherNetwork.bucketKey());
+        assertEquals(new ClientAddress(0x2001_0db8_0001_0002L, 0), a.bucketKey());
+    }
+
+    @Test
+    void keysIpv4AndNonIpClientsByTheFullValue() {
+        ClientAddress v4 = ClientAddress.parse("192.0.2.1");
+        ClientAddress nonIp = ClientAddress.parse("unknown");
+
+        assertEquals(v4, v4.bucketKey());
+        assertEquals(nonIp, nonIp.bucketKey());
+        assertNotEquals(v4.bucketKey(), ClientAddress.parse("192.0.2.2").bucketKey());
+    }
+}
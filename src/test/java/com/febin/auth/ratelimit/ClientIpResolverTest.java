@@ -0,0 +1,71 @@
+package com.febin.auth.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClientIpResolverTest {
+
+    private final ClientIpResolver resolver = new ClientIpResolver(List.of("10.0.0.0/8", "2001:db8::/32"));
+
+    @Test
+    void ignoresForwardedForFromUntrustedPeers() {
+        MockHttpServletRequest request = request("203.0.113.7", "198.51.100.1");
+
+        assertEquals("203.0.113.7", resolver.resolveIp(request));
+    }
+
+    @Test
+    void ignoresForwardedForWithoutTrustedProxies() {
+        MockHttpServletRequest request = request("10.0.0.1", "198.51.100.1");
+
+        assertEquals("10.0.0.1", new ClientIpResolver(List.of()).resolveIp(request));
+    }
+
+    @Test
+    void takesTheRightMostUntrustedHop() {
+        // the client prepended a fake entry; our proxies appended the rest
+        MockHttpServletRequest request = request("10.0.0.1", "127.0.0.1, 198.51.100.1, 10.0.0.2");
+
+        assertEquals("198.51.100.1", resolver.resolveIp(request));
+    }
+
+    @Test
+    void readsRepeatedHeadersInOrder() {
+        MockHttpServletRequest request = request("2001:db8::1", "127.0.0.1");
+        request.addHeader("X-Forwarded-For", "198.51.100.1");
+
+        assertEquals("198.51.100.1", resolver.resolveIp(request));
+    }
+
+    @Test
+    void fallsBackToTheLeftMostHopWhenAllAreTrusted() {
+        MockHttpServletRequest request = request("10.0.0.1", "10.1.1.1, 10.0.0.2");
+
+        assertEquals("10.1.1.1", resolver.resolveIp(request));
+        assertEquals("10.0.0.1", resolver.resolveIp(request("10.0.0.1", null)));
+    }
+
+    @Test
+    void keysUnparseableHopsAsNonIpClients() {
+        MockHttpServletRequest request = request("10.0.0.1", "not-an-ip");
+
+        assertEquals(ClientAddress.parse("not-an-ip"), resolver.resolve(request));
+    }
+
+    @Test
+    void rejectsInvalidProxyEntries() {
+        assertThrows(IllegalArgumentException.class, () -> new ClientIpResolver(List.of("proxy.internal")));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/me");
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+}
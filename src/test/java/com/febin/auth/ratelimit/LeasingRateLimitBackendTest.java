@@ -0,0 +1,110 @@
+package com.febin.auth.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeasingRateLimitBackendTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long START = 1_000 * SECOND;
+    private static final ClientAddress CLIENT = ClientAddress.parse("192.0.2.1");
+    // no refill within a test
+    private static final TokenBucket.Limit LIMIT = TokenBucket.Limit.of(100, 1, 3600);
+
+    private final EmbeddedSharedBucketStore store = new EmbeddedSharedBucketStore();
+
+    @Test
+    void spendsALeasedBatchLocallyAndReportsTheSharedCount() {
+        LeasingRateLimitBackend node = node(store);
+
+        assertEquals(99, node.tryConsume(CLIENT, rule(LIMIT), START));
+        for (long expected = 98; expected >= 90; expected--) {
+            assertEquals(expected, node.tryConsume(CLIENT, rule(LIMIT), START));
+        }
+        assertEquals(1L, node.getStats().get("storeCalls"));
+
+        // the batch is used up: the next request leases another one
+        assertEquals(89, node.tryConsume(CLIENT, rule(LIMIT), START));
+        assertEquals(2L, node.getStats().get("storeCalls"));
+    }
+
+    @Test
+    void nodesShareOneLimit() {
+        LeasingRateLimitBackend a = node(store);
+        LeasingRateLimitBackend b = node(store);
+        TokenBucket.Limit limit = TokenBucket.Limit.of(20, 1, 3600);
+
+        int allowed = 0;
+        for (int i = 0; i < 50; i++) {
+            if (a.tryConsume(CLIENT, rule(limit), START) >= 0) allowed++;
+            if (b.tryConsume(CLIENT, rule(limit), START) >= 0) allowed++;
+        }
+
+        assertEquals(20, allowed);
+    }
+
+    @Test
+    void handsBackTokensOfAnExpiredLease() {
+        LeasingRateLimitBackend node = node(store);
+        node.tryConsume(CLIENT, rule(LIMIT), START);
+
+        // lease-ttl-ms is 1000: the nine unspent tokens go back with the next store call
+        assertEquals(98, node.tryConsume(CLIENT, rule(LIMIT), START + 2 * SECOND));
+        assertEquals(2L, node.getStats().get("storeCalls"));
+    }
+
+    @Test
+    void remembersRejectionsUntilTheClientMayRetry() {
+        LeasingRateLimitBackend node = node(store);
+        TokenBucket.Limit limit = TokenBucket.Limit.of(1, 1, 60);
+        assertEquals(0, node.tryConsume(CLIENT, rule(limit), START));
+
+        assertTrue(node.tryConsume(CLIENT, rule(limit), START) < 0);
+        long rejection = node.tryConsume(CLIENT, rule(limit), START + SECOND);
+
+        assertTrue(rejection < 0 && rejection > -60 * SECOND, String.valueOf(rejection));
+        assertEquals(2L, node.getStats().get("storeCalls"));
+    }
+
+    @Test
+    void fallsBackToLocalBucketsWhileTheStoreIsDown() {
+        LeasingRateLimitBackend node = node(new SharedBucketStore() {
+            @Override
+            public Grant acquire(String key, long tokens, long returned, TokenBucket.Limit limit) {
+                throw new IllegalStateException("connection refused");
+            }
+
+            @Override
+            public String name() {
+                return "down";
+            }
+        });
+        TokenBucket.Limit limit = TokenBucket.Limit.of(2, 1, 3600);
+
+        assertTrue(node.tryConsume(CLIENT, rule(limit), START) >= 0);
+        assertTrue(node.tryConsume(CLIENT, rule(limit), START) >= 0);
+        assertTrue(node.tryConsume(CLIENT, rule(limit), START) < 0);
+        assertEquals(1L, node.getStats().get("storeErrors"));
+        assertEquals(3L, node.getStats().get("fallbackDecisions"));
+    }
+
+    @Test
+    void returnedTokensNeverOverfillTheSharedBucket() {
+        SharedBucketStore.Grant grant = store.acquire("k", 10, 50, LIMIT);
+
+        assertEquals(10, grant.granted());
+        assertEquals(90, grant.remaining());
+    }
+
+    private static RateLimitRules.Rule rule(TokenBucket.Limit limit) {
+        return new RateLimitRules.Rule("/api/test", 1, limit);
+    }
+
+    private static LeasingRateLimitBackend node(SharedBucketStore store) {
+        return new LeasingRateLimitBackend(store, 1024, 10, 1000, 60_000);
+    }
+}
@@ -0,0 +1,132 @@
+package com.febin.auth.ratelimit;
+
+import com.febin.auth.config.RateLimitProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RateLimitFilterTest {
+
+    @Test
+    void normalizesTheAccountName() {
+        assertEquals("alice@example.com", RateLimitFilter.extractAccount(body("{\"usernameOrEmail\":\"  Alice@Example.COM \"}")));
+        // Locale.ROOT: no Turkish dotless i
+        assertEquals("iris", RateLimitFilter.extractAccount(body("{\"usernameOrEmail\":\"IRIS\"}")));
+    }
+
+    @Test
+    void readsTheLastOccurrenceOfTheAccountField() {
+        String decoy = "{\"usernameOrEmail\":\"decoy\",\"password\":\"x\",\"usernameOrEmail\":\"victim\"}";
+
+        assertEquals("victim", RateLimitFilter.extractAccount(body(decoy)));
+    }
+
+    @Test
+    void skipsNestedAndNonStringValues() {
+        String nested = "{\"meta\":{\"usernameOrEmail\":\"inner\"},\"usernameOrEmail\":\"outer\"}";
+
+        assertEquals("outer", RateLimitFilter.extractAccount(body(nested)));
+        assertNull(RateLimitFilter.extractAccount(body("{\"usernameOrEmail\":42}")));
+    }
+
+    @Test
+    void ignoresMissingEmptyAndMalformedBodies() {
+        assertNull(RateLimitFilter.extractAccount(body("{\"password\":\"x\"}")));
+        assertNull(RateLimitFilter.extractAccount(body("{\"usernameOrEmail\":\"   \"}")));
+        assertNull(RateLimitFilter.extractAccount(body("[\"usernameOrEmail\"]")));
+        assertNull(RateLimitFilter.extractAccount(body("{\"usernameOrEmail\":")));
+        assertNull(RateLimitFilter.extractAccount(new byte[0]));
+    }
+
+    @Test
+    void keysAccountsByTheirNormalizedName() {
+        String a = RateLimitFilter.extractAccount(body("{\"usernameOrEmail\":\"Alice\"}"));
+        String b = RateLimitFilter.extractAccount(body("{\"usernameOrEmail\":\" ALICE \"}"));
+
+        assertEquals(RateLimitFilter.accountKey(a), RateLimitFilter.accountKey(b));
+        assertNotEquals(RateLimitFilter.accountKey("alice"), RateLimitFilter.accountKey("bob"));
+    }
+
+    @Test
+    void limitsPerAccountAcrossAddressesAndEncodedPaths() throws Exception {
+        RateLimitFilter filter = filter(List.of());
+
+        assertEquals(200, login(filter, "192.0.2.1", "/api/auth/login", "Alice").getStatus());
+        assertEquals(200, login(filter, "192.0.2.2", "/api/auth/logi%6E", "alice").getStatus());
+        MockHttpServletResponse third = login(filter, "192.0.2.3", "/api/auth/logi%6E", " ALICE ");
+
+        assertEquals(429, third.getStatus());
+        assertNotNull(third.getHeader("Retry-After"));
+        assertEquals(200, login(filter, "192.0.2.3", "/api/auth/login", "bob").getStatus());
+    }
+
+    @Test
+    void appliesTheAccountLimitToWhitelistedClients() throws Exception {
+        RateLimitFilter filter = filter(List.of("192.0.2.0/24"));
+
+        login(filter, "192.0.2.1", "/api/auth/login", "alice");
+        login(filter, "192.0.2.1", "/api/auth/login", "alice");
+
+        assertEquals(429, login(filter, "192.0.2.1", "/api/auth/login", "alice").getStatus());
+    }
+
+    @Test
+    void forwardsTheBodyToTheController() throws Exception {
+        RateLimitFilter filter = filter(List.of());
+        MockHttpServletRequest request = loginRequest("192.0.2.1", "/api/auth/login", "alice");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertEquals("{\"usernameOrEmail\":\"alice\",\"password\":\"x\"}",
+                new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    private static RateLimitFilter filter(List<String> whitelist) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getDefault().setCapacity(0);
+        properties.getEndpoints().put("/api/auth/login", config(100));
+        properties.setPerAccount(config(2));
+        properties.setWhitelistIps(whitelist);
+        return new RateLimitFilter(new LocalRateLimitBackend(1024), new ClientIpResolver(List.of()), properties);
+    }
+
+    private static MockHttpServletResponse login(RateLimitFilter filter, String ip, String uri, String account) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(loginRequest(ip, uri, account), response, new MockFilterChain());
+        return response;
+    }
+
+    /**
+     * As the container presents it: the raw URI, and the decoded servlet path.
+     */
+    private static MockHttpServletRequest loginRequest(String ip, String uri, String account) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setServletPath("/api/auth/login");
+        request.setRemoteAddr(ip);
+        request.setContentType("application/json");
+        request.setContent(body("{\"usernameOrEmail\":\"" + account + "\",\"password\":\"x\"}"));
+        return request;
+    }
+
+    private static RateLimitProperties.EndpointConfig config(long capacity) {
+        RateLimitProperties.EndpointConfig config = new RateLimitProperties.EndpointConfig();
+        config.setCapacity(capacity);
+        config.setRefillTokens(1);
+        config.setRefillPeriodSeconds(3600);
+        return config;
+    }
+
+    private static byte[] body(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,108 @@
+package com.febin.auth.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.febin.auth.config.RateLimitProperties;
+import com.febin.auth.entity.RateLimitRuleSet;
+import com.febin.auth.repository.RateLimitRuleSetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RateLimitRuleSyncTest {
+
+    // rate_limit_rules, shared by both instances
+    private final List<RateLimitRuleSet> rows = new ArrayList<>();
+    private final RateLimitRuleSetRepository repository = mock(RateLimitRuleSetRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        when(repository.save(any())).thenAnswer(inv -> {
+            RateLimitRuleSet ruleSet = inv.getArgument(0);
+            ruleSet.setId(rows.size() + 1L);
+            rows.add(ruleSet);
+            return ruleSet;
+        });
+        when(repository.findTopByOrderByIdDesc()).thenAnswer(inv ->
+                rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(rows.size() - 1)));
+    }
+
+    @Test
+    void appliesRulesPublishedOnOneInstanceOnTheOthers() {
+        Instance a = new Instance();
+        Instance b = new Instance();
+
+        Map<String, Object> published = a.sync.publish(properties(3), 1L);
+        assertEquals(1L, published.get("version"));
+        assertEquals(3, loginCapacity(a.filter));
+        assertEquals(100, loginCapacity(b.filter));
+
+        b.sync.poll();
+        assertEquals(3, loginCapacity(b.filter));
+        assertEquals(1L, b.sync.getAppliedVersion());
+
+        // a restarted instance starts from the application properties and catches up
+        Instance c = new Instance();
+        c.sync.poll();
+        assertEquals(3, loginCapacity(c.filter));
+    }
+
+    @Test
+    void resetSendsEveryInstanceBackToTheApplicationProperties() {
+        Instance a = new Instance();
+        Instance b = new Instance();
+        a.sync.publish(properties(3), 1L);
+        b.sync.poll();
+
+        b.sync.reset(1L);
+        a.sync.poll();
+
+        assertEquals(100, loginCapacity(a.filter));
+        assertEquals(100, loginCapacity(b.filter));
+        assertEquals(2L, a.sync.getAppliedVersion());
+    }
+
+    @Test
+    void rejectsInvalidRulesWithoutPublishingThem() {
+        Instance a = new Instance();
+        RateLimitProperties invalid = properties(3);
+        invalid.getEndpoints().put("api/no-leading-slash", invalid.getPerAccount());
+
+        assertThrows(IllegalArgumentException.class, () -> a.sync.publish(invalid, 1L));
+        assertTrue(rows.isEmpty());
+        assertEquals(100, loginCapacity(a.filter));
+    }
+
+    private static long loginCapacity(RateLimitFilter filter) {
+        return filter.getRules().getSource().getEndpoints().get("/api/auth/login").getCapacity();
+    }
+
+    private static RateLimitProperties properties(long loginCapacity) {
+        RateLimitProperties properties = new RateLimitProperties();
+        RateLimitProperties.EndpointConfig login = new RateLimitProperties.EndpointConfig();
+        login.setCapacity(loginCapacity);
+        properties.getEndpoints().put("/api/auth/login", login);
+        return properties;
+    }
+
+    private class Instance {
+        final RateLimitFilter filter;
+        final RateLimitRuleSync sync;
+
+        Instance() {
+            RateLimitProperties defaults = properties(100);
+            filter = new RateLimitFilter(new LocalRateLimitBackend(1024), new ClientIpResolver(List.of()), defaults);
+            sync = new RateLimitRuleSync(filter, repository, new ObjectMapper(), defaults);
+        }
+    }
+}
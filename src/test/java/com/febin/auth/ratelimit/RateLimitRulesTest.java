@@ -0,0 +1,131 @@
+package com.febin.auth.ratelimit;
+
+import com.febin.auth.config.RateLimitProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RateLimitRulesTest {
+
+    private static final List<String> ROUTES = List.of("/api/auth/login", "/api/users/*", "/api/users/me");
+
+    private final RuleIds ids = new RuleIds();
+
+    @Test
+    void prefersTheMostSpecificEndpointPattern() {
+        RateLimitProperties properties = properties();
+        properties.getEndpoints().put("/api/auth/**", config(50));
+        RateLimitRules rules = RateLimitRules.compile(properties, ROUTES, ids);
+
+        assertEquals("/api/auth/login", rules.match("/api/auth/login").pattern());
+        assertEquals("/api/auth/**", rules.match("/api/auth/signup").pattern());
+    }
+
+    @Test
+    void exemptsInternalAndKeyDiscoveryRoutes() {
+        RateLimitRules rules = RateLimitRules.compile(properties(), ROUTES, ids);
+
+        assertNull(rules.match("/api/internal/introspect"));
+        assertNull(rules.match("/.well-known/jwks.json"));
+    }
+
+    @Test
+    void aMoreSpecificEndpointPatternOverridesAnExemption() {
+        RateLimitProperties properties = properties();
+        properties.getEndpoints().put("/api/internal/introspect", config(1000));
+        RateLimitRules rules = RateLimitRules.compile(properties, ROUTES, ids);
+
+        assertEquals("/api/internal/introspect", rules.match("/api/internal/introspect").pattern());
+        assertNull(rules.match("/api/internal/other"));
+    }
+
+    @Test
+    void keysTheDefaultLimitPerRoute() {
+        RateLimitRules rules = RateLimitRules.compile(properties(), ROUTES, ids);
+
+        RateLimitRules.Rule user = rules.match("/api/users/42");
+        RateLimitRules.Rule me = rules.match("/api/users/me");
+        RateLimitRules.Rule unknown = rules.match("/no/such/page");
+
+        assertEquals("default:/api/users/*", user.pattern());
+        assertEquals(user, rules.match("/api/users/43"));
+        assertEquals("default:/api/users/me", me.pattern());
+        assertEquals("default", unknown.pattern());
+        assertEquals(unknown, rules.match("/another/unknown/page"));
+        assertNotEquals(user.id(), me.id());
+        assertEquals(100, user.limit().capacity());
+    }
+
+    @Test
+    void leavesUnmatchedPathsUnlimitedWithoutADefault() {
+        RateLimitProperties properties = properties();
+        properties.getDefault().setCapacity(0);
+        RateLimitRules rules = RateLimitRules.compile(properties, ROUTES, ids);
+
+        assertNull(rules.match("/api/users/42"));
+        assertEquals("/api/auth/login", rules.match("/api/auth/login").pattern());
+    }
+
+    @Test
+    void assignsSequentialIdsThatSurviveAReload() {
+        RateLimitRules first = RateLimitRules.compile(properties(), ROUTES, ids);
+        RateLimitProperties changed = properties();
+        changed.getEndpoints().put("/api/auth/login", config(1));
+        changed.getEndpoints().put("/api/auth/signup", config(5));
+        RateLimitRules second = RateLimitRules.compile(changed, ROUTES, ids);
+
+        int loginId = first.match("/api/auth/login").id();
+        assertEquals(loginId, second.match("/api/auth/login").id());
+        assertEquals(1, second.match("/api/auth/login").limit().capacity());
+        int signupId = second.match("/api/auth/signup").id();
+        assertNotEquals(loginId, signupId);
+        assertEquals(signupId, ids.idOf("/api/auth/signup"));
+    }
+
+    @Test
+    void neverSharesIdsBetweenPatterns() {
+        // "Aa" and "BB" have the same String.hashCode()
+        assertNotEquals(ids.idOf("/Aa"), ids.idOf("/BB"));
+        assertEquals(ids.idOf("/Aa"), ids.idOf("/Aa"));
+    }
+
+    @Test
+    void convertsRequestMappingsToTriePatterns() {
+        assertEquals("/api/users/*", RateLimitRules.routePattern("/api/users/{id}"));
+        assertEquals("/files/**", RateLimitRules.routePattern("/files/{*path}"));
+        assertEquals("/static/**", RateLimitRules.routePattern("/static/**"));
+        assertEquals("/docs/*", RateLimitRules.routePattern("/docs/{name}.html"));
+        assertEquals("/", RateLimitRules.routePattern("/"));
+    }
+
+    @Test
+    void rejectsInvalidPatterns() {
+        RateLimitProperties relative = properties();
+        relative.getEndpoints().put("api/auth/login", config(1));
+        RateLimitProperties duplicate = properties();
+        duplicate.setExempt(List.of("/api/auth/login"));
+
+        assertThrows(IllegalArgumentException.class, () -> RateLimitRules.compile(relative, ROUTES, ids));
+        assertThrows(IllegalArgumentException.class, () -> RateLimitRules.compile(duplicate, ROUTES, ids));
+    }
+
+    private static RateLimitProperties properties() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setDefault(config(100));
+        properties.getEndpoints().put("/api/auth/login", config(20));
+        return properties;
+    }
+
+    private static RateLimitProperties.EndpointConfig config(long capacity) {
+        RateLimitProperties.EndpointConfig config = new RateLimitProperties.EndpointConfig();
+        config.setCapacity(capacity);
+        config.setRefillTokens(capacity);
+        config.setRefillPeriodSeconds(60);
+        return config;
+    }
+}
@@ -0,0 +1,67 @@
+package com.febin.auth.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long START = 1_000 * SECOND;
+    private static final ClientAddress CLIENT = ClientAddress.parse("192.0.2.1");
+
+    @Test
+    void derivesTheEmissionIntervalFromTheRefillRate() {
+        assertEquals(SECOND / 2, TokenBucket.Limit.of(10, 2, 1).intervalNanos());
+        assertEquals(6 * SECOND, TokenBucket.Limit.of(10, 10, 60).intervalNanos());
+        assertEquals(10, TokenBucket.Limit.of(10, 2, 1).capacity());
+    }
+
+    @Test
+    void allowsABurstOfCapacityThenRejects() {
+        BucketStore buckets = new BucketStore(1024);
+        TokenBucket.Limit limit = TokenBucket.Limit.of(3, 1, 1);
+
+        assertEquals(2, buckets.tryConsume(CLIENT, 1, limit, START));
+        assertEquals(1, buckets.tryConsume(CLIENT, 1, limit, START));
+        assertEquals(0, buckets.tryConsume(CLIENT, 1, limit, START));
+        assertEquals(-SECOND, buckets.tryConsume(CLIENT, 1, limit, START));
+    }
+
+    @Test
+    void refillsContinuously() {
+        BucketStore buckets = new BucketStore(1024);
+        TokenBucket.Limit limit = TokenBucket.Limit.of(3, 1, 1);
+        for (int i = 0; i < 3; i++) {
+            buckets.tryConsume(CLIENT, 1, limit, START);
+        }
+
+        // half an interval later the token is not back yet, and the wait has halved
+        assertEquals(-SECOND / 2, buckets.tryConsume(CLIENT, 1, limit, START + SECOND / 2));
+        assertEquals(0, buckets.tryConsume(CLIENT, 1, limit, START + SECOND));
+        // two intervals later two tokens are back (one was spent at START + 1s)
+        assertEquals(1, buckets.tryConsume(CLIENT, 1, limit, START + 3 * SECOND));
+        // a long idle period refills to capacity, never beyond
+        assertEquals(2, buckets.tryConsume(CLIENT, 1, limit, START + 3600 * SECOND));
+    }
+
+    @Test
+    void neverRefillsWithoutRefillTokens() {
+        BucketStore buckets = new BucketStore(1024);
+        TokenBucket.Limit limit = TokenBucket.Limit.of(1, 0, 1);
+        assertEquals(0, buckets.tryConsume(CLIENT, 1, limit, START));
+
+        assertTrue(buckets.tryConsume(CLIENT, 1, limit, START + 365L * 86_400 * SECOND) < 0);
+    }
+
+    @Test
+    void roundsRetryAfterUpToWholeSeconds() {
+        assertEquals(1, TokenBucket.retryAfterSeconds(-1));
+        assertEquals(1, TokenBucket.retryAfterSeconds(-SECOND));
+        assertEquals(2, TokenBucket.retryAfterSeconds(-SECOND - 1));
+        assertEquals(6, TokenBucket.retryAfterSeconds(-TokenBucket.Limit.of(10, 10, 60).intervalNanos()));
+    }
+}
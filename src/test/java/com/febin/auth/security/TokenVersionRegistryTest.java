@@ -0,0 +1,52 @@
+package com.febin.auth.security;
+
+import com.febin.auth.config.JwtProperties;
+import com.febin.auth.repository.DeletedUserRepository;
+import com.febin.auth.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenVersionRegistryTest {
+
+    @Test
+    void picksUpCutoffsOfUsersDeletedOnOtherInstances() {
+        UserRepository users = mock(UserRepository.class);
+        DeletedUserRepository deletedUsers = mock(DeletedUserRepository.class);
+        when(users.findTokenVersionsRevokedSince(any())).thenReturn(List.of());
+        when(deletedUsers.findTokenVersionsDeletedSince(any())).thenReturn(List.of(view(42L, 3, Instant.now())));
+        TokenVersionRegistry registry = new TokenVersionRegistry(users, deletedUsers, new JwtProperties(), 60_000);
+
+        assertTrue(registry.isCurrent(42L, 2));
+        registry.syncFromDatabase();
+
+        assertFalse(registry.isCurrent(42L, 2));
+        assertTrue(registry.isCurrent(7L, 0));
+    }
+
+    private static UserRepository.TokenVersionView view(Long id, int version, Instant revokedAt) {
+        return new UserRepository.TokenVersionView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public int getTokenVersion() {
+                return version;
+            }
+
+            @Override
+            public Instant getTokensRevokedAt() {
+                return revokedAt;
+            }
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.febin.auth.service;
+
+import com.febin.auth.config.JwtProperties;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshCoalescerTest {
+
+    @Test
+    void dropsAFlightWhoseLeaderFailedWithAnError() {
+        AuthService authService = mock(AuthService.class);
+        IssuedTokens tokens = new IssuedTokens("access", "refresh");
+        when(authService.rotateRefreshToken("token"))
+                .thenThrow(new StackOverflowError())
+                .thenReturn(tokens);
+        RefreshCoalescer coalescer = new RefreshCoalescer(authService, new JwtProperties());
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        assertThrows(StackOverflowError.class, () -> coalescer.refresh("token", response));
+        coalescer.refresh("token", response);
+
+        verify(authService, times(2)).rotateRefreshToken("token");
+        verify(authService).writeTokenCookies(response, tokens);
+    }
+}
@@ -0,0 +1,127 @@
+package com.febin.auth.service;
+
+import com.febin.auth.config.JwtProperties;
+import com.febin.auth.entity.RefreshToken;
+import com.febin.auth.entity.User;
+import com.febin.auth.repository.RefreshTokenRepository;
+import com.febin.auth.repository.UserRepository;
+import com.febin.auth.store.JpaRefreshTokenStore;
+import com.febin.auth.store.RotationResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenPurgeServiceTest {
+
+    private static final Instant NOW = Instant.now();
+
+    private final Map<Long, RefreshToken> rows = new LinkedHashMap<>();
+    private final RefreshTokenRepository repository = mock(RefreshTokenRepository.class);
+    private RefreshTokenPurgeService purgeService;
+    private JpaRefreshTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        // refresh_tokens as the purge and rotation queries see it
+        when(repository.deleteExpiredBatch(any(), anyInt())).thenAnswer(inv -> {
+            Instant cutoff = inv.getArgument(0);
+            int before = rows.size();
+            rows.values().removeIf(rt -> rt.getExpiryDate().isBefore(cutoff));
+            return before - rows.size();
+        });
+        when(repository.findPurgeableRevokedIds(any(), any(), anyInt())).thenAnswer(inv -> {
+            Instant cutoff = inv.getArgument(0);
+            Instant now = inv.getArgument(1);
+            return rows.values().stream()
+                    .filter(rt -> rt.isRevoked() && rt.getCreatedAt().isBefore(cutoff))
+                    .filter(rt -> rows.values().stream().noneMatch(live -> Arrays.equals(live.getFamilyId(), rt.getFamilyId())
+                            && !live.isRevoked() && live.getExpiryDate().isAfter(now)))
+                    .sorted(Comparator.comparing(RefreshToken::getCreatedAt))
+                    .limit(inv.<Integer>getArgument(2))
+                    .map(RefreshToken::getId)
+                    .toList();
+        });
+        when(repository.deleteRevokedByIds(any())).thenAnswer(inv -> {
+            int before = rows.size();
+            rows.keySet().removeAll(inv.<Collection<Long>>getArgument(0));
+            return before - rows.size();
+        });
+        when(repository.rotate(any(), any())).thenAnswer(inv -> {
+            RefreshToken rt = row(inv.getArgument(0));
+            if (rt == null || rt.isRevoked() || !rt.getExpiryDate().isAfter(inv.getArgument(1))) return 0;
+            rt.setRevoked(true);
+            return 1;
+        });
+        when(repository.findWithUserByTokenHash(any())).thenAnswer(inv -> Optional.ofNullable(row(inv.getArgument(0))));
+
+        LeaseScheduler leaseScheduler = mock(LeaseScheduler.class);
+        when(leaseScheduler.isHeld(anyString())).thenReturn(true);
+        JwtProperties properties = new JwtProperties();
+        properties.getRefreshTokenPurge().setPause(Duration.ZERO);
+        properties.getRefreshTokenPurge().setRevokedRetention(Duration.ofDays(1));
+        purgeService = new RefreshTokenPurgeService(repository, leaseScheduler, properties);
+        store = new JpaRefreshTokenStore(repository, mock(UserRepository.class));
+    }
+
+    @Test
+    void keepsRotatedTokensOfALiveFamilySoTheirReplayRevokesIt() {
+        // issued three days ago and rotated today; the session's current token is still live
+        RefreshToken rotated = insert(1, 7, NOW.minus(Duration.ofDays(3)), true);
+        insert(2, 7, NOW.minusSeconds(60), false);
+
+        assertEquals(0, purgeService.purge());
+
+        RotationResult replay = store.rotate(rotated.getTokenHash(), NOW);
+        assertEquals(RotationResult.Outcome.REUSED, replay.outcome());
+    }
+
+    @Test
+    void purgesRevokedTokensOnceTheirFamilyIsRevoked() {
+        RefreshToken rotated = insert(1, 7, NOW.minus(Duration.ofDays(3)), true);
+        insert(2, 7, NOW.minus(Duration.ofDays(2)), true);
+        // revoked too recently
+        insert(3, 8, NOW.minusSeconds(60), true);
+
+        assertEquals(2, purgeService.purge());
+        assertTrue(rows.containsKey(3L));
+
+        // the session already ended, so nothing is left to revoke
+        assertEquals(RotationResult.Outcome.NOT_FOUND, store.rotate(rotated.getTokenHash(), NOW).outcome());
+    }
+
+    private RefreshToken insert(long id, int family, Instant createdAt, boolean revoked) {
+        RefreshToken rt = new RefreshToken();
+        rt.setId(id);
+        rt.setTokenHash(ByteBuffer.allocate(32).putLong(id).array());
+        rt.setFamilyId(ByteBuffer.allocate(16).putInt(family).array());
+        User user = new User();
+        user.setId(10L);
+        rt.setUser(user);
+        rt.setCreatedAt(createdAt);
+        rt.setExpiryDate(createdAt.plus(Duration.ofDays(7)));
+        rt.setRevoked(revoked);
+        rows.put(id, rt);
+        return rt;
+    }
+
+    private RefreshToken row(byte[] tokenHash) {
+        return rows.values().stream().filter(rt -> Arrays.equals(rt.getTokenHash(), tokenHash)).findFirst().orElse(null);
+    }
+}
@@ -0,0 +1,123 @@
+package com.febin.auth.store;
+
+import com.febin.auth.config.JwtProperties;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedRefreshTokenTierTest {
+
+    private static final Instant NOW = Instant.now();
+
+    @Test
+    void sweepsExpiredTokensBeforeDroppingLiveOnes() {
+        EmbeddedRefreshTokenTier tier = tier(10);
+        for (int id = 0; id < 5; id++) {
+            tier.put(token(id, 1, NOW.minusSeconds(1)));
+        }
+        for (int id = 5; id < 10; id++) {
+            tier.put(token(id, 1, NOW.plusSeconds(60)));
+        }
+
+        tier.put(token(10, 1, NOW.plusSeconds(60)));
+
+        assertEquals(6, tier.size());
+        assertEquals(5, tier.getEvictionCount());
+        assertNotNull(tier.get(hash(5)));
+    }
+
+    @Test
+    void dropsATenthOfLiveTokensWhenFull() {
+        EmbeddedRefreshTokenTier tier = tier(10);
+        for (int id = 0; id <= 10; id++) {
+            tier.put(token(id, 1, NOW.plusSeconds(60)));
+        }
+
+        assertEquals(10, tier.size());
+        assertNotNull(tier.get(hash(10)));
+    }
+
+    @Test
+    void putIfAbsentKeepsTheCachedEntry() {
+        EmbeddedRefreshTokenTier tier = tier(10);
+        StoredRefreshToken cached = token(1, 1, NOW.plusSeconds(60));
+        tier.put(cached);
+
+        assertSame(cached, tier.putIfAbsent(cached.asRevoked()));
+        assertFalse(tier.get(hash(1)).revoked());
+    }
+
+    @Test
+    void keepsMarkersUntilTheCapIsReached() {
+        EmbeddedRefreshTokenTier tier = tier(10);
+        tier.put(token(1, 1, NOW.plusSeconds(60)));
+        for (int family = 0; family < 10; family++) {
+            tier.revokeFamily(familyId(family), NOW.plusSeconds(60));
+        }
+
+        assertTrue(tier.isFamilyRevoked(familyId(0)));
+        assertEquals(0, tier.getMarkerEvictionCount());
+        assertEquals(1, tier.size());
+    }
+
+    @Test
+    void droppingLiveMarkersDropsCachedTokens() {
+        EmbeddedRefreshTokenTier tier = tier(10);
+        tier.put(token(1, 1, NOW.plusSeconds(60)));
+        for (int family = 0; family <= 10; family++) {
+            tier.revokeFamily(familyId(family), NOW.plusSeconds(60));
+        }
+
+        assertEquals(1, tier.getMarkerEvictionCount());
+        assertNull(tier.get(hash(1)));
+        assertTrue(tier.isFamilyRevoked(familyId(10)));
+    }
+
+    @Test
+    void expiredMarkersMakeRoomFirst() {
+        EmbeddedRefreshTokenTier tier = tier(10);
+        tier.put(token(1, 1, NOW.plusSeconds(60)));
+        for (long user = 0; user < 10; user++) {
+            tier.revokeUser(user, NOW.minusSeconds(10), NOW.minusSeconds(1));
+        }
+
+        tier.revokeUser(99L, NOW, NOW.plusSeconds(60));
+
+        assertEquals(0, tier.getMarkerEvictionCount());
+        assertNotNull(tier.get(hash(1)));
+        assertNull(tier.userRevokedAt(0L));
+        assertEquals(NOW, tier.userRevokedAt(99L));
+    }
+
+    // ------------ Helpers ------------
+
+    private static EmbeddedRefreshTokenTier tier(int maxSize) {
+        JwtProperties properties = new JwtProperties();
+        properties.getRefreshStore().setCacheMaxSize(maxSize);
+        return new EmbeddedRefreshTokenTier(properties);
+    }
+
+    private static StoredRefreshToken token(int id, int family, Instant expiresAt) {
+        return new StoredRefreshToken(hash(id), 1L, familyId(family), expiresAt, NOW.minusSeconds(60), false);
+    }
+
+    private static byte[] hash(int id) {
+        byte[] hash = new byte[32];
+        ByteBuffer.wrap(hash).putInt(id);
+        return hash;
+    }
+
+    private static byte[] familyId(int family) {
+        byte[] id = new byte[16];
+        ByteBuffer.wrap(id).putInt(family);
+        return id;
+    }
+}
@@ -0,0 +1,307 @@
+package com.febin.auth.store;
+
+import com.febin.auth.config.JwtProperties;
+import com.febin.auth.config.JwtProperties.RefreshStore.Durability;
+import com.febin.auth.entity.RefreshToken;
+import com.febin.auth.entity.User;
+import com.febin.auth.exception.StoreUnavailableException;
+import com.febin.auth.repository.RefreshTokenRepository;
+import com.febin.auth.repository.UserRepository;
+import com.febin.auth.service.LeaseScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TieredRefreshTokenStoreTest {
+
+    private static final Instant NOW = Instant.now();
+
+    @TempDir
+    Path journalDir;
+
+    private final FakeRefreshTokens database = new FakeRefreshTokens();
+    private final List<TieredRefreshTokenStore> started = new ArrayList<>();
+
+    private final LeaseScheduler leaseScheduler = mock(LeaseScheduler.class);
+
+    @BeforeEach
+    void holdLease() {
+        when(leaseScheduler.tryAcquire(TieredRefreshTokenStore.LEASE_NAME)).thenReturn(true);
+        when(leaseScheduler.isHeld(TieredRefreshTokenStore.LEASE_NAME)).thenReturn(true);
+    }
+
+    @AfterEach
+    void stopStores() {
+        started.forEach(TieredRefreshTokenStore::stop);
+    }
+
+    @Test
+    void replaysJournalOfAFlushThatCrashedMidBatch() throws Exception {
+        StoredRefreshToken a = token(1, 1, 10L);
+        StoredRefreshToken b = token(2, 1, 10L);
+        StoredRefreshToken c = token(3, 2, 10L);
+        WriteBehindJournal journal = new WriteBehindJournal(journalDir, false);
+        journal.append(new PendingWrite.Create(a));
+        journal.append(new PendingWrite.Create(b));
+        journal.append(new PendingWrite.RevokeToken(a.tokenHash()));
+        journal.append(new PendingWrite.Create(c));
+        Path segment = journal.roll();
+        // the crash also tore the line being appended
+        Files.writeString(segment, "C AAAA 10", StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+        // the first chunk (flush-batch-size 2) was committed before the crash
+        database.insert(a);
+        database.insert(b);
+
+        TieredRefreshTokenStore store = start(Durability.JOURNAL, 100, 2, 100);
+
+        assertEquals(3, database.rows.size());
+        assertEquals(3, database.inserted.get(), "tokens committed before the crash are not inserted again");
+        assertTrue(database.row(a).isRevoked());
+        assertFalse(database.row(b).isRevoked());
+        assertFalse(database.row(c).isRevoked());
+        assertTrue(new WriteBehindJournal(journalDir, false).segments().isEmpty());
+        assertEquals(4L, store.getStats().get("recoveredWrites"));
+    }
+
+    @Test
+    void detectsReuseOfATokenEvictedBeforeItsWritesAreFlushed() {
+        TieredRefreshTokenStore store = start(Durability.JOURNAL, 10, 500, 1000);
+        StoredRefreshToken a = token(1, 1, 10L);
+        store.save(a);
+        assertEquals(RotationResult.Outcome.ROTATED, store.rotate(a.tokenHash(), NOW).outcome());
+
+        evictEverything(store, 100);
+        assertEquals(0, database.flushes.get(), "a tier miss must not flush");
+        assertEquals(RotationResult.Outcome.REUSED, store.rotate(a.tokenHash(), NOW).outcome());
+
+        store.flush();
+        evictEverything(store, 200);
+        assertEquals(RotationResult.Outcome.REUSED, store.rotate(a.tokenHash(), NOW).outcome());
+    }
+
+    @Test
+    void keepsFamilyRevocationsWhenTheirMarkersAreEvicted() {
+        TieredRefreshTokenStore store = start(Durability.JOURNAL, 10, 500, 1000);
+        StoredRefreshToken a = token(1, 1, 10L);
+        store.save(a);
+        store.find(a.tokenHash());
+        store.revokeFamily(a.familyId());
+        for (int family = 100; family < 130; family++) {
+            store.revokeFamily(familyId(family));
+        }
+
+        assertEquals(RotationResult.Outcome.REUSED, store.rotate(a.tokenHash(), NOW).outcome());
+        store.flush();
+        for (int family = 200; family < 230; family++) {
+            store.revokeFamily(familyId(family));
+        }
+        assertEquals(RotationResult.Outcome.REUSED, store.rotate(a.tokenHash(), NOW).outcome());
+    }
+
+    @Test
+    void rejectsWritesWhenTheQueueStaysFull() {
+        TieredRefreshTokenStore store = start(Durability.JOURNAL, 100, 500, 2);
+        database.down.set(true);
+        // the third write waits for the flusher to take the first two as its (failing) batch
+        for (int id = 1; id <= 4; id++) {
+            store.save(token(id, id, 10L));
+        }
+
+        // that batch is retried before the queue is taken again, so the queue stays full
+        assertThrows(StoreUnavailableException.class, () -> store.save(token(5, 5, 10L)));
+        assertEquals(1L, store.getStats().get("rejectedWrites"));
+
+        database.down.set(false);
+        store.flush();
+        store.save(token(5, 5, 10L));
+        store.flush();
+        assertEquals(5, database.rows.size());
+    }
+
+    @Test
+    void refusesToStartWhileAnotherInstanceHoldsTheStore() {
+        when(leaseScheduler.tryAcquire(TieredRefreshTokenStore.LEASE_NAME)).thenReturn(false);
+        assertThrows(IllegalStateException.class, () -> start(Durability.JOURNAL, 10, 500, 1000));
+    }
+
+    @Test
+    void refusesRotationsOnceTheLeaseIsLost() {
+        TieredRefreshTokenStore store = start(Durability.JOURNAL, 10, 500, 1000);
+        StoredRefreshToken a = token(1, 1, 10L);
+        store.save(a);
+        when(leaseScheduler.isHeld(TieredRefreshTokenStore.LEASE_NAME)).thenReturn(false);
+
+        assertThrows(StoreUnavailableException.class, () -> store.rotate(a.tokenHash(), NOW));
+        assertFalse(store.find(a.tokenHash()).orElseThrow().revoked());
+    }
+
+    @Test
+    void revokesASessionOfItsOwnerWithoutFlushing() {
+        TieredRefreshTokenStore store = start(Durability.JOURNAL, 100, 500, 1000);
+        StoredRefreshToken queued = token(1, 1, 10L);
+        store.save(queued);
+        StoredRefreshToken committed = token(2, 2, 10L);
+        database.insert(committed);
+
+        assertFalse(store.revokeFamilyOfUser(queued.familyId(), 20L));
+        assertFalse(store.revokeFamilyOfUser(committed.familyId(), 20L));
+        assertTrue(store.revokeFamilyOfUser(queued.familyId(), 10L));
+        assertTrue(store.revokeFamilyOfUser(committed.familyId(), 10L));
+        assertFalse(store.revokeFamilyOfUser(committed.familyId(), 10L), "already ended");
+        assertEquals(0, database.flushes.get());
+
+        assertEquals(RotationResult.Outcome.REUSED, store.rotate(queued.tokenHash(), NOW).outcome());
+        assertEquals(RotationResult.Outcome.REUSED, store.rotate(committed.tokenHash(), NOW).outcome());
+        store.flush();
+        assertTrue(database.row(queued).isRevoked());
+        assertTrue(database.row(committed).isRevoked());
+    }
+
+    // ------------ Helpers ------------
+
+    private TieredRefreshTokenStore start(Durability durability, int cacheMaxSize, int flushBatchSize, int maxPending) {
+        JwtProperties properties = new JwtProperties();
+        properties.setRefreshTokenValidityMs(Duration.ofDays(1).toMillis());
+        JwtProperties.RefreshStore config = properties.getRefreshStore();
+        config.setDurability(durability);
+        config.setJournalDir(journalDir.toString());
+        // flushed by the tests only
+        config.setFlushInterval(Duration.ofHours(1));
+        config.setFlushBatchSize(flushBatchSize);
+        config.setMaxPending(maxPending);
+        config.setMaxPendingWait(Duration.ofMillis(50));
+        config.setCacheMaxSize(cacheMaxSize);
+
+        TieredRefreshTokenStore store = new TieredRefreshTokenStore(new EmbeddedRefreshTokenTier(properties),
+                database.repository, database.users, mock(PlatformTransactionManager.class), leaseScheduler, properties);
+        store.start();
+        started.add(store);
+        return store;
+    }
+
+    private void evictEverything(TieredRefreshTokenStore store, int firstId) {
+        for (int id = firstId; id < firstId + 20; id++) {
+            store.save(token(id, id, 20L));
+        }
+    }
+
+    private static StoredRefreshToken token(int id, int family, Long userId) {
+        byte[] hash = new byte[32];
+        ByteBuffer.wrap(hash).putInt(id);
+        return new StoredRefreshToken(hash, userId, familyId(family), NOW.plusSeconds(3600), NOW.minusSeconds(60), false);
+    }
+
+    private static byte[] familyId(int family) {
+        byte[] id = new byte[16];
+        ByteBuffer.wrap(id).putInt(family);
+        return id;
+    }
+
+    /**
+     * refresh_tokens as the store's queries see it.
+     */
+    @SuppressWarnings("unchecked")
+    private static class FakeRefreshTokens {
+        final Map<ByteBuffer, RefreshToken> rows = new LinkedHashMap<>();
+        final AtomicInteger inserted = new AtomicInteger();
+        final AtomicInteger flushes = new AtomicInteger();
+        final AtomicBoolean down = new AtomicBoolean();
+        final RefreshTokenRepository repository = mock(RefreshTokenRepository.class);
+        final UserRepository users = mock(UserRepository.class);
+
+        FakeRefreshTokens() {
+            when(users.getReferenceById(any())).thenAnswer(inv -> user(inv.getArgument(0)));
+            when(repository.findWithUserByTokenHash(any())).thenAnswer(inv ->
+                    Optional.ofNullable(rows.get(ByteBuffer.wrap(inv.<byte[]>getArgument(0)))));
+            when(repository.findActiveByFamilyIdAndUserId(any(), any(), any())).thenAnswer(inv -> rows.values().stream()
+                    .filter(rt -> Arrays.equals(rt.getFamilyId(), inv.getArgument(0))
+                            && rt.getUser().getId().equals(inv.getArgument(1)) && !rt.isRevoked()
+                            && rt.getExpiryDate().isAfter(inv.getArgument(2)))
+                    .toList());
+            when(repository.findExistingTokenHashes(any())).thenAnswer(inv -> {
+                checkUp();
+                return inv.<Collection<byte[]>>getArgument(0).stream()
+                        .filter(hash -> rows.containsKey(ByteBuffer.wrap(hash))).toList();
+            });
+            when(repository.saveAll(any())).thenAnswer(inv -> {
+                checkUp();
+                for (RefreshToken rt : inv.<Iterable<RefreshToken>>getArgument(0)) {
+                    rows.put(ByteBuffer.wrap(rt.getTokenHash()), rt);
+                    inserted.incrementAndGet();
+                }
+                flushes.incrementAndGet();
+                return List.of();
+            });
+            when(repository.revokeByTokenHashes(any())).thenAnswer(inv -> {
+                checkUp();
+                inv.<Collection<byte[]>>getArgument(0).forEach(hash -> {
+                    RefreshToken rt = rows.get(ByteBuffer.wrap(hash));
+                    if (rt != null) rt.setRevoked(true);
+                });
+                flushes.incrementAndGet();
+                return 0;
+            });
+            when(repository.revokeFamilies(any())).thenAnswer(inv -> {
+                checkUp();
+                for (byte[] family : inv.<Collection<byte[]>>getArgument(0)) {
+                    rows.values().stream().filter(rt -> ByteBuffer.wrap(rt.getFamilyId()).equals(ByteBuffer.wrap(family)))
+                            .forEach(rt -> rt.setRevoked(true));
+                }
+                flushes.incrementAndGet();
+                return 0;
+            });
+        }
+
+        void insert(StoredRefreshToken token) {
+            RefreshToken rt = new RefreshToken();
+            rt.setTokenHash(token.tokenHash());
+            rt.setFamilyId(token.familyId());
+            rt.setUser(user(token.userId()));
+            rt.setExpiryDate(token.expiresAt());
+            rt.setCreatedAt(token.createdAt());
+            rows.put(ByteBuffer.wrap(token.tokenHash()), rt);
+            inserted.incrementAndGet();
+        }
+
+        RefreshToken row(StoredRefreshToken token) {
+            return rows.get(ByteBuffer.wrap(token.tokenHash()));
+        }
+
+        private void checkUp() {
+            if (down.get()) throw new IllegalStateException("database is down");
+        }
+
+        private static User user(Long id) {
+            User user = new User();
+            user.setId(id);
+            return user;
+        }
+    }
+}